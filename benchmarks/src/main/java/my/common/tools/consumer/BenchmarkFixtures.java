@@ -0,0 +1,145 @@
+package my.common.tools.consumer;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import my.common.tools.producer.TaskProducer;
+
+/**
+ * Tasks, producers and executors shared by the benchmarks.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class BenchmarkFixtures {
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Task identified by a number, doing nothing when executed.
+	 */
+	static final class NumberedTask implements IdentifiedTask {
+		private final long id;
+
+		NumberedTask(long id) {
+			this.id = id;
+		}
+
+		@Override
+		public void run() {
+		}
+
+		@Override
+		public long taskId() {
+			return id;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(id);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof NumberedTask && ((NumberedTask) obj).id == id;
+		}
+
+		@Override
+		public String toString() {
+			return "NumberedTask [id=" + id + "]";
+		}
+	}
+
+	/**
+	 * Producer returning snapshots of {@code snapshotSize} tasks, where the first {@code duplicateRatio}
+	 * part repeats tasks of the previous snapshot and the rest are new ones. The tasks are created lazily.
+	 */
+	static final class SnapshotProducer implements TaskProducer {
+		private final int snapshotSize;
+		private final int repeated;
+		private long previousBase;
+		private long nextBase;
+
+		SnapshotProducer(int snapshotSize, double duplicateRatio) {
+			this.snapshotSize = snapshotSize;
+			this.repeated = (int) (snapshotSize * duplicateRatio);
+		}
+
+		@Override
+		public Iterator<Runnable> nextTasks() {
+			long repeatedBase = previousBase;
+			long newBase = nextBase;
+			previousBase = newBase - repeated;
+			nextBase = newBase + snapshotSize - repeated;
+			return new Iterator<Runnable>() {
+				private int position;
+
+				@Override
+				public boolean hasNext() {
+					return position < snapshotSize;
+				}
+
+				@Override
+				public Runnable next() {
+					if (!hasNext()){
+						throw new NoSuchElementException();
+					}
+					int current = position++;
+					return current < repeated ? new NumberedTask(repeatedBase + current)
+											  : new NumberedTask(newBase + current - repeated);
+				}
+			};
+		}
+	}
+
+	static NumberedTask[] tasks(int amount, double duplicateRatio){
+		int distinct = Math.max(1, (int) (amount * (1d - duplicateRatio)));
+		NumberedTask[] tasks = new NumberedTask[amount];
+		for (int i = 0; i < amount; i++){
+			tasks[i] = new NumberedTask(i % distinct);
+		}
+		return tasks;
+	}
+
+	/**
+	 * Executor running the tasks in the calling thread, so the completion path is part of the measure.
+	 */
+	static final class DirectExecutorService extends AbstractExecutorService {
+		private volatile boolean shutdown;
+
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+
+		@Override
+		public void shutdown() {
+			shutdown = true;
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			shutdown = true;
+			return Collections.emptyList();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return shutdown;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return shutdown;
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return true;
+		}
+	}
+}
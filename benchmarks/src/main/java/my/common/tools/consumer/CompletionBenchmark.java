@@ -0,0 +1,86 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import my.common.tools.consumer.BenchmarkFixtures.NumberedTask;
+
+/**
+ * Completion path under contention: workers forwarding and concluding tasks 
+ * while the distributor checks the obtained ones, with each kind of memory.
+ * <p>
+ * The distributor finishes a cycle every {@value #KNOWN_TASKS} checks, so the memories evict as in a consumer.
+ * The amount of workers is defined with the JMH group threads option, e.g.
+ * {@code java -jar target/benchmarks.jar CompletionBenchmark -tg 1,64}.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class CompletionBenchmark {
+
+	private static final int KNOWN_TASKS = 1 << 16;
+
+	@Param({"maxEntries", "compact"})
+	private String memory;
+
+	private final AtomicLong ids = new AtomicLong();
+	private TaskBookkeeping bookkeeping;
+
+	@Setup(Level.Iteration)
+	public void setUp(){
+		CompletedTaskMemory completedTaskMemory = "compact".equals(memory) ? CompletedTaskMemory.compact()
+																			: CompletedTaskMemory.maxEntries(KNOWN_TASKS);
+		bookkeeping = new TaskBookkeeping(completedTaskMemory, ConsumerMetrics.NONE, () -> {});
+	}
+
+	@State(Scope.Thread)
+	public static class Distributor {
+		private long next;
+
+		Runnable nextJob(AtomicLong ids){
+			next++;
+			return new NumberedTask(ids.get() - (next & (KNOWN_TASKS - 1)));
+		}
+	}
+
+	@Benchmark
+	@Group("contended")
+	@GroupThreads(1)
+	public boolean distributorChecks(Distributor distributor){
+		boolean isNew = bookkeeping.isNew(distributor.nextJob(ids));
+		if ((distributor.next & (KNOWN_TASKS - 1)) == 0){
+			bookkeeping.cycleFinished();
+		}
+		return isNew;
+	}
+
+	@Benchmark
+	@Group("contended")
+	@GroupThreads(8)
+	public TaskWrapper workerCompletes(){
+		TaskWrapper task = bookkeeping.wrap(new NumberedTask(ids.incrementAndGet()));
+		bookkeeping.recordsForwardedTask(task);
+		task.run();
+		return task;
+	}
+}
@@ -0,0 +1,210 @@
+package my.common.tools.consumer;
+
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link PeriodicConsumer} against a synthetic load in simulated time: tasks arriving at a rate, 
+ * part of them duplicated, part of them failing, each one executing for a time of a distribution.
+ * The {@link VirtualClock} drives the pulling cycles and the executions, so a scenario of minutes runs in seconds.
+ * <p>
+ * Only the cycles and the tasks durations are simulated, the timers internal to the consumer 
+ * (rate limit, linger of the bulk handler, watchdog, adaptive interval) keep the real clock, so they are not configured here.
+ * <p>
+ * Run with key=value arguments, e.g. {@code rate=100000 duplicates=0.3 seconds=60}. The keys are rate, duplicates, failures,
+ * workers, batch, intervalMs, seconds, seed and durations (fixed:ms, exponential:meanMs, lognormal:medianMs:sigma or pareto:minMs:alpha).
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public final class LoadSimulation {
+
+	private double arrivalsPerSecond = 5_000;
+	private double duplicateRatio = 0.3;
+	private double failureRate = 0.01;
+	private TaskDurations durations = TaskDurations.logNormal(5, 1d, TimeUnit.MILLISECONDS);
+	private int workers = 64;
+	private int batchAmount = 256;
+	private long intervalNanos = TimeUnit.MILLISECONDS.toNanos(20);
+	private long durationNanos = TimeUnit.SECONDS.toNanos(60);
+	private CompletedTaskMemory memory = CompletedTaskMemory.untilNoLongerReturned();
+	private long seed = 42;
+
+	public LoadSimulation arrivalsPerSecond(double arrivalsPerSecond){
+		if (arrivalsPerSecond <= 0){
+			throw new IllegalArgumentException("The arrival rate must be positive. Informed: " + arrivalsPerSecond);
+		}
+		this.arrivalsPerSecond = arrivalsPerSecond;
+		return this;
+	}
+
+	/**
+	 * Part of the arrivals delivering again one of the recent tasks, between 0 and 1.
+	 */
+	public LoadSimulation duplicateRatio(double duplicateRatio){
+		this.duplicateRatio = ratio(duplicateRatio);
+		return this;
+	}
+
+	/**
+	 * Part of the executions failing, between 0 and 1.
+	 */
+	public LoadSimulation failureRate(double failureRate){
+		this.failureRate = ratio(failureRate);
+		return this;
+	}
+
+	public LoadSimulation durations(TaskDurations durations){
+		this.durations = Objects.requireNonNull(durations, "durations");
+		return this;
+	}
+
+	public LoadSimulation workers(int workers){
+		if (workers <= 0){
+			throw new IllegalArgumentException("The amount of workers must be positive. Informed: " + workers);
+		}
+		this.workers = workers;
+		return this;
+	}
+
+	public LoadSimulation batchAmount(int batchAmount){
+		if (batchAmount <= 0){
+			throw new IllegalArgumentException("The batch amount must be positive. Informed: " + batchAmount);
+		}
+		this.batchAmount = batchAmount;
+		return this;
+	}
+
+	public LoadSimulation timeInterval(long interval, TimeUnit timeUnit){
+		if (interval <= 0){
+			throw new IllegalArgumentException("The time interval must be positive. Informed: " + interval);
+		}
+		this.intervalNanos = timeUnit.toNanos(interval);
+		return this;
+	}
+
+	public LoadSimulation simulatedTime(long duration, TimeUnit timeUnit){
+		if (duration <= 0){
+			throw new IllegalArgumentException("The simulated time must be positive. Informed: " + duration);
+		}
+		this.durationNanos = timeUnit.toNanos(duration);
+		return this;
+	}
+
+	public LoadSimulation completedTaskMemory(CompletedTaskMemory memory){
+		this.memory = memory;
+		return this;
+	}
+
+	public LoadSimulation seed(long seed){
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Runs the scenario, in the calling thread.
+	 * 
+	 * @return the measures as text.
+	 */
+	public String run() throws InterruptedException{
+		return simulate().summary();
+	}
+
+	/**
+	 * Runs the scenario, in the calling thread.
+	 */
+	SimulationReport simulate() throws InterruptedException{
+		long wallStart = System.nanoTime();
+		Random random = new Random(seed);
+		VirtualClock clock = new VirtualClock();
+		SimulationReport report = new SimulationReport();
+		SyntheticTaskProducer producer = new SyntheticTaskProducer(clock, random, arrivalsPerSecond, duplicateRatio);
+		SimulatedExecutor executor = new SimulatedExecutor(clock, random, workers, durations, failureRate, producer, report);
+		PeriodicConsumer consumer = PeriodicConsumer.of()
+													.producer(producer)
+													.consumerService(executor)
+													.timeInterval(intervalNanos, TimeUnit.NANOSECONDS)
+													.batchAmount(batchAmount)
+													.completedTaskMemory(memory)
+													.create();
+		clock.every(intervalNanos, consumer::process);
+		clock.runUntil(durationNanos);
+		consumer.finishesWaitingAtTheMost(0, TimeUnit.SECONDS);
+		report.ended(producer, executor, workers, durationNanos, System.nanoTime() - wallStart);
+		return report;
+	}
+
+	public static void main(String[] args) throws InterruptedException{
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.my.common.tools.consumer.PeriodicConsumer", "off");
+		LoadSimulation simulation = new LoadSimulation();
+		for (String arg : args){
+			int separator = arg.indexOf('=');
+			if (separator < 0){
+				throw new IllegalArgumentException("Arguments must be key=value. Informed: " + arg);
+			}
+			simulation.set(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		System.out.println(simulation.run());
+	}
+
+	private void set(String key, String value){
+		switch (key) {
+			case "rate":
+				arrivalsPerSecond(Double.parseDouble(value));
+				break;
+			case "duplicates":
+				duplicateRatio(Double.parseDouble(value));
+				break;
+			case "failures":
+				failureRate(Double.parseDouble(value));
+				break;
+			case "workers":
+				workers(Integer.parseInt(value));
+				break;
+			case "batch":
+				batchAmount(Integer.parseInt(value));
+				break;
+			case "intervalMs":
+				timeInterval(Long.parseLong(value), TimeUnit.MILLISECONDS);
+				break;
+			case "seconds":
+				simulatedTime(Long.parseLong(value), TimeUnit.SECONDS);
+				break;
+			case "seed":
+				seed(Long.parseLong(value));
+				break;
+			case "durations":
+				durations(parseDurations(value));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument: " + key);
+		}
+	}
+
+	/**
+	 * @param value one of fixed:ms, exponential:meanMs, lognormal:medianMs:sigma or pareto:minMs:alpha.
+	 */
+	private static TaskDurations parseDurations(String value){
+		String[] parts = value.split(":");
+		switch (parts[0]) {
+			case "fixed":
+				return TaskDurations.fixed(Long.parseLong(parts[1]), TimeUnit.MILLISECONDS);
+			case "exponential":
+				return TaskDurations.exponential(Long.parseLong(parts[1]), TimeUnit.MILLISECONDS);
+			case "lognormal":
+				return TaskDurations.logNormal(Long.parseLong(parts[1]), Double.parseDouble(parts[2]), TimeUnit.MILLISECONDS);
+			case "pareto":
+				return TaskDurations.pareto(Long.parseLong(parts[1]), Double.parseDouble(parts[2]), TimeUnit.MILLISECONDS);
+			default:
+				throw new IllegalArgumentException("Unknown distribution: " + value);
+		}
+	}
+
+	private static double ratio(double ratio){
+		if (ratio < 0 || ratio > 1){
+			throw new IllegalArgumentException("The ratio must be between 0 and 1. Informed: " + ratio);
+		}
+		return ratio;
+	}
+}
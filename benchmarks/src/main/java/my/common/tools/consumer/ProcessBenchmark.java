@@ -0,0 +1,56 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import my.common.tools.consumer.BenchmarkFixtures.DirectExecutorService;
+import my.common.tools.consumer.BenchmarkFixtures.SnapshotProducer;
+
+/**
+ * Cost of a whole {@link PeriodicConsumer#process()} cycle: pulling the snapshot, wrapping, filtering,
+ * forwarding, executing (in the distributor thread, so the completion path is included) and cleaning.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ProcessBenchmark {
+
+	@Param({"10", "1000", "100000", "1000000"})
+	private int snapshotSize;
+
+	@Param({"0.0", "0.5", "0.9"})
+	private double duplicateRatio;
+
+	private PeriodicConsumer consumer;
+
+	@Setup(Level.Trial)
+	public void setUp(){
+		consumer = PeriodicConsumer.of()
+								   .producer(new SnapshotProducer(snapshotSize, duplicateRatio))
+								   .consumerService(new DirectExecutorService())
+								   .timeInterval(1, TimeUnit.SECONDS)
+								   .create();
+	}
+
+	@Benchmark
+	public long process(){
+		return consumer.process();
+	}
+}
@@ -0,0 +1,110 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import my.common.tools.consumer.SyntheticTaskProducer.SyntheticTask;
+
+/**
+ * Consumers of the {@link LoadSimulation}: a pool of simulated workers, each task occupying one of them
+ * for a sampled time of the {@link VirtualClock}, after which it is run (concluding it in the consumer).
+ * The tasks beyond the workers wait in a queue, as in a fixed thread pool.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class SimulatedExecutor extends AbstractExecutorService {
+
+	private final VirtualClock clock;
+	private final Random random;
+	private final int workers;
+	private final TaskDurations durations;
+	private final double failureRate;
+	private final SyntheticTaskProducer producer;
+	private final SimulationReport report;
+	private final Queue<Runnable> queued = new ArrayDeque<>();
+
+	private int busy;
+	private boolean shutdown;
+
+	SimulatedExecutor(VirtualClock clock, Random random, int workers, TaskDurations durations, double failureRate,
+					  SyntheticTaskProducer producer, SimulationReport report) {
+		this.clock = clock;
+		this.random = random;
+		this.workers = workers;
+		this.durations = durations;
+		this.failureRate = failureRate;
+		this.producer = producer;
+		this.report = report;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (busy < workers){
+			start((TaskWrapper) command);
+		} else {
+			queued.add(command);
+		}
+	}
+
+	private void start(TaskWrapper task){
+		busy++;
+		SyntheticTask job = (SyntheticTask) task.originalJob();
+		long duration = durations.sampleNanos(random);
+		job.failing(random.nextDouble() < failureRate);
+		report.executionStarted(job);
+		clock.schedule(duration, () -> finish(task, job, duration));
+	}
+
+	private void finish(TaskWrapper task, SyntheticTask job, long duration){
+		boolean failed = job.isFailing();
+		task.run();
+		report.executionFinished(job, failed, duration, clock.now());
+		if (!failed){
+			producer.completed(job);
+		}
+		busy--;
+		Runnable next = queued.poll();
+		if (next != null){
+			start((TaskWrapper) next);
+		}
+	}
+
+	int busy(){
+		return busy;
+	}
+
+	int queued(){
+		return queued.size();
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+		return Collections.emptyList();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) {
+		return true;
+	}
+}
@@ -0,0 +1,127 @@
+package my.common.tools.consumer;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import my.common.tools.consumer.SyntheticTaskProducer.SyntheticTask;
+
+/**
+ * Measures of a {@link LoadSimulation}: throughput, latency from the arrival to the completion, 
+ * utilization of the workers and the executions repeated (a task executed again after completed, 
+ * or, what the consumer must never do, while still executing).
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class SimulationReport {
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final BitSet executing = new BitSet();
+	private final BitSet completed = new BitSet();
+
+	private long executions;
+	private long completions;
+	private long failures;
+	private long repeatedExecutions;
+	private long concurrentExecutions;
+	private long busyNanos;
+
+	private long arrivals;
+	private long duplicates;
+	private long distinctTasks;
+	private int pending;
+	private int busy;
+	private int queued;
+	private int workers;
+	private long elapsedNanos;
+	private long wallNanos;
+
+	void executionStarted(SyntheticTask task){
+		int id = (int) task.taskId();
+		executions++;
+		if (executing.get(id)){
+			concurrentExecutions++;
+		} else if (completed.get(id)){
+			repeatedExecutions++;
+		}
+		executing.set(id);
+	}
+
+	void executionFinished(SyntheticTask task, boolean failed, long durationNanos, long now){
+		int id = (int) task.taskId();
+		executing.clear(id);
+		busyNanos += durationNanos;
+		if (failed){
+			failures++;
+			return;
+		}
+		completions++;
+		completed.set(id);
+		latency.record(now - task.arrivedAt());
+	}
+
+	/**
+	 * Takes the state of the producer and of the executor at the end of a simulation of the informed time 
+	 * with the informed workers.
+	 */
+	void ended(SyntheticTaskProducer producer, SimulatedExecutor executor, int workers, long elapsedNanos, long wallNanos){
+		this.arrivals = producer.arrivals();
+		this.duplicates = producer.duplicates();
+		this.distinctTasks = producer.distinctTasks();
+		this.pending = producer.pending();
+		this.busy = executor.busy();
+		this.queued = executor.queued();
+		this.workers = workers;
+		this.elapsedNanos = elapsedNanos;
+		this.wallNanos = wallNanos;
+	}
+
+	long arrivals(){
+		return arrivals;
+	}
+
+	long executions(){
+		return executions;
+	}
+
+	long completions(){
+		return completions;
+	}
+
+	long failures(){
+		return failures;
+	}
+
+	long repeatedExecutions(){
+		return repeatedExecutions;
+	}
+
+	long concurrentExecutions(){
+		return concurrentExecutions;
+	}
+
+	/**
+	 * @return the measures as text.
+	 */
+	String summary(){
+		double seconds = elapsedNanos / 1e9;
+		LatencyHistogram.Snapshot snapshot = latency.snapshot();
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("Simulated %.1fs in %.2fs of wall time%n", seconds, wallNanos / 1e9));
+		text.append(String.format("Arrivals:     %d (%d duplicated deliveries, %d distinct tasks)%n", 
+								  arrivals, duplicates, distinctTasks));
+		text.append(String.format("Executions:   %d (%d completed, %d failed)%n", executions, completions, failures));
+		text.append(String.format("Repeated:     %d after completed, %d while executing%n", repeatedExecutions, concurrentExecutions));
+		text.append(String.format("Throughput:   %.1f completed/s%n", completions / seconds));
+		text.append(String.format("Latency (ms): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n", 
+								  millis(snapshot, 50), millis(snapshot, 90), millis(snapshot, 99), millis(snapshot, 99.9),
+								  snapshot.max(TimeUnit.MICROSECONDS) / 1e3));
+		text.append(String.format("Utilization:  %.1f%% of %d workers%n", 100d * busyNanos / workers / elapsedNanos, workers));
+		text.append(String.format("At the end:   %d pending in the producer, %d executing, %d queued in the executor", 
+								  pending, busy, queued));
+		return text.toString();
+	}
+
+	private static double millis(LatencyHistogram.Snapshot snapshot, double percentile){
+		return snapshot.percentile(percentile, TimeUnit.MICROSECONDS) / 1e3;
+	}
+}
@@ -0,0 +1,173 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import my.common.tools.producer.TaskProducer;
+
+/**
+ * Producer of the {@link LoadSimulation}, as a store of pending tasks: the tasks arrive in the simulated time
+ * (a Poisson process of the informed rate), and each pull returns all the pending ones, until they are completed.
+ * <p>
+ * A part of the arrivals are duplicates, delivering again one of the recent tasks: if still pending, the snapshot 
+ * returns it twice; if already completed, it is returned until the consumer either executes it again or discards it
+ * (having returned it once, a later pull drops it as acknowledged, as a queue redelivering a message would).
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class SyntheticTaskProducer implements TaskProducer {
+
+	private static final int RECENT = 1024;
+
+	private final VirtualClock clock;
+	private final Random random;
+	private final double arrivalsPerNano;
+	private final double duplicateRatio;
+
+	private final List<SyntheticTask> pending = new ArrayList<>();
+	private final Map<Long, Long> completedAt = new HashMap<>();
+	private final BitSet completedOnce = new BitSet();
+	private final long[] recent = new long[RECENT];
+
+	private long nextArrival;
+	private long nextId;
+	private long arrivals;
+	private long duplicates;
+
+	SyntheticTaskProducer(VirtualClock clock, Random random, double arrivalsPerSecond, double duplicateRatio) {
+		this.clock = clock;
+		this.random = random;
+		this.arrivalsPerNano = arrivalsPerSecond / 1e9;
+		this.duplicateRatio = duplicateRatio;
+	}
+
+	@Override
+	public Iterator<Runnable> nextTasks() {
+		arrive();
+		pending.removeIf(this::acknowledged);
+		completedAt.clear();
+		for (SyntheticTask task : pending){
+			task.returned = true;
+		}
+		return Collections.<Runnable>unmodifiableList(pending).iterator();
+	}
+
+	/**
+	 * The task was completed, so it is no longer returned (unless delivered again after now).
+	 */
+	void completed(SyntheticTask task){
+		completedAt.put(task.id, clock.now());
+		completedOnce.set((int) task.id);
+	}
+
+	/**
+	 * @return true if a completion happened after the delivery, or if the delivery was already returned 
+	 * and its task was completed at some point (the consumer discarding it as a duplicate).
+	 */
+	private boolean acknowledged(SyntheticTask task){
+		if (!completedOnce.get((int) task.id)){
+			return false;
+		}
+		Long completion = completedAt.get(task.id);
+		return task.returned || completion != null && task.arrivedAt <= completion;
+	}
+
+	private void arrive(){
+		long now = clock.now();
+		while (nextArrival <= now){
+			long id;
+			if (nextId > 0 && random.nextDouble() < duplicateRatio){
+				id = recent[random.nextInt((int) Math.min(nextId, RECENT))];
+				duplicates++;
+			} else {
+				id = nextId++;
+				recent[(int) (id % RECENT)] = id;
+			}
+			pending.add(new SyntheticTask(id, nextArrival));
+			arrivals++;
+			nextArrival += (long) (-Math.log(1d - random.nextDouble()) / arrivalsPerNano);
+		}
+	}
+
+	long arrivals(){
+		return arrivals;
+	}
+
+	long duplicates(){
+		return duplicates;
+	}
+
+	long distinctTasks(){
+		return nextId;
+	}
+
+	int pending(){
+		return pending.size();
+	}
+
+	/**
+	 * A delivery of a simulated task, equal to the other deliveries of the same task.
+	 */
+	static final class SyntheticTask implements IdentifiedTask {
+		private final long id;
+		private final long arrivedAt;
+		private boolean failing;
+		private boolean returned;
+
+		private SyntheticTask(long id, long arrivedAt) {
+			this.id = id;
+			this.arrivedAt = arrivedAt;
+		}
+
+		/**
+		 * Defines whether the next execution fails.
+		 */
+		void failing(boolean failing){
+			this.failing = failing;
+		}
+
+		boolean isFailing(){
+			return failing;
+		}
+
+		/**
+		 * @return when this delivery arrived, in the simulated time.
+		 */
+		long arrivedAt(){
+			return arrivedAt;
+		}
+
+		@Override
+		public void run() {
+			if (failing){
+				throw new IllegalStateException("Simulated failure of the task " + id);
+			}
+		}
+
+		@Override
+		public long taskId() {
+			return id;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(id);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof SyntheticTask && ((SyntheticTask) obj).id == id;
+		}
+
+		@Override
+		public String toString() {
+			return "SyntheticTask [id=" + id + "]";
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package my.common.tools.consumer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution of the execution times of the simulated tasks.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+@FunctionalInterface
+public interface TaskDurations {
+
+	/**
+	 * @return an execution time, in nanoseconds.
+	 */
+	long sampleNanos(Random random);
+
+	static TaskDurations fixed(long duration, TimeUnit unit){
+		long nanos = unit.toNanos(duration);
+		return random -> nanos;
+	}
+
+	static TaskDurations exponential(long mean, TimeUnit unit){
+		double meanNanos = unit.toNanos(mean);
+		return random -> (long) (-Math.log(1d - random.nextDouble()) * meanNanos);
+	}
+
+	/**
+	 * Long-tailed times, as of remote calls: most close to the median, a few many times slower.
+	 * 
+	 * @param sigma spread of the logarithm of the times, e.g. 1 for a p99 about ten times the median.
+	 */
+	static TaskDurations logNormal(long median, double sigma, TimeUnit unit){
+		double medianNanos = unit.toNanos(median);
+		return random -> (long) (medianNanos * Math.exp(sigma * random.nextGaussian()));
+	}
+
+	/**
+	 * Heavy-tailed times, never below the minimum.
+	 * 
+	 * @param alpha shape of the tail, the lower the heavier (without a finite mean when 1 or less).
+	 */
+	static TaskDurations pareto(long min, double alpha, TimeUnit unit){
+		double minNanos = unit.toNanos(min);
+		return random -> (long) (minNanos / Math.pow(1d - random.nextDouble(), 1d / alpha));
+	}
+}
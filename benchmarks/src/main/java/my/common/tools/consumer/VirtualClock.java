@@ -0,0 +1,75 @@
+package my.common.tools.consumer;
+
+import java.util.PriorityQueue;
+
+/**
+ * Simulated time of the {@link LoadSimulation}: the events run in the order of their time, in the calling thread,
+ * the time jumping from one event to the next, so a long scenario runs as fast as its events are processed.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class VirtualClock {
+
+	private final PriorityQueue<Event> events = new PriorityQueue<>();
+
+	private long now;
+	private long sequence;
+
+	/**
+	 * @return the simulated time, in nanoseconds since the start.
+	 */
+	long now(){
+		return now;
+	}
+
+	/**
+	 * Runs the action after the delay, the actions scheduled to the same time running in the order they were scheduled.
+	 */
+	void schedule(long delayNanos, Runnable action){
+		events.add(new Event(now + Math.max(0, delayNanos), sequence++, action));
+	}
+
+	/**
+	 * Runs the action now and then at every period.
+	 */
+	void every(long periodNanos, Runnable action){
+		schedule(0, new Runnable() {
+			@Override
+			public void run() {
+				action.run();
+				schedule(periodNanos, this);
+			}
+		});
+	}
+
+	/**
+	 * Runs the events until the time informed, which becomes the current time.
+	 */
+	void runUntil(long endNanos){
+		Event event;
+		while ((event = events.peek()) != null && event.at <= endNanos){
+			events.poll();
+			now = event.at;
+			event.action.run();
+		}
+		now = endNanos;
+	}
+
+	private static final class Event implements Comparable<Event>{
+		private final long at;
+		private final long sequence;
+		private final Runnable action;
+
+		private Event(long at, long sequence, Runnable action) {
+			this.at = at;
+			this.sequence = sequence;
+			this.action = action;
+		}
+
+		@Override
+		public int compareTo(Event other) {
+			int byTime = Long.compare(at, other.at);
+			return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+		}
+	}
+}
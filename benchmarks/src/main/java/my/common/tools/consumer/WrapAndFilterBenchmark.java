@@ -0,0 +1,100 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost per task of the {@link TaskWrapper} allocation and wrapping, and of the duplicate checks 
+ * against the forwarded and completed tasks.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class WrapAndFilterBenchmark {
+
+	private static final int TASKS = 4096;
+
+	/**
+	 * Part of the tasks already known: half of them forwarded, half completed.
+	 */
+	@Param({"0.0", "0.5", "0.9"})
+	private double duplicateRatio;
+
+	/**
+	 * Memory of the completed tasks: the tasks themselves, or only their ids (on or off the heap).
+	 */
+	@Param({"untilNoLongerReturned", "compact", "compactOffHeap"})
+	private String memory;
+
+	private TaskBookkeeping bookkeeping;
+	private Runnable[] jobs;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp(){
+		bookkeeping = new TaskBookkeeping(memory(), ConsumerMetrics.NONE, () -> {});
+		jobs = BenchmarkFixtures.tasks(TASKS, 0d);
+		int known = (int) (TASKS * duplicateRatio);
+		for (int i = 0; i < TASKS; i++){
+			if (i < known){
+				TaskWrapper task = bookkeeping.wrap(jobs[i]);
+				bookkeeping.recordsForwardedTask(task);
+				if (i % 2 == 0){
+					task.run();
+				}
+			}
+		}
+	}
+
+	private CompletedTaskMemory memory(){
+		switch (memory) {
+		case "compact":
+			return CompletedTaskMemory.compact();
+		case "compactOffHeap":
+			return CompletedTaskMemory.compact(task -> ((IdentifiedTask) task).taskId(), true);
+		default:
+			return CompletedTaskMemory.untilNoLongerReturned();
+		}
+	}
+
+	private int nextIndex(){
+		next = (next + 1) & (TASKS - 1);
+		return next;
+	}
+
+	@Benchmark
+	public TaskWrapper wrap(){
+		return bookkeeping.wrap(jobs[nextIndex()]);
+	}
+
+	@Benchmark
+	public boolean isNew(){
+		return bookkeeping.isNew(jobs[nextIndex()]);
+	}
+
+	@Benchmark
+	public void filterAndWrap(Blackhole blackhole){
+		Runnable job = jobs[nextIndex()];
+		if (bookkeeping.isNew(job)){
+			blackhole.consume(bookkeeping.wrap(job));
+		}
+	}
+}
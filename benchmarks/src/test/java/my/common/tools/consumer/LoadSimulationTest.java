@@ -0,0 +1,45 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoadSimulationTest {
+
+	@Test
+	public void repeteOsResultadosComAMesmaSemente() throws InterruptedException{
+		SimulationReport primeira = simulacao().simulate();
+		SimulationReport segunda = simulacao().simulate();
+
+		Assert.assertTrue(primeira.completions() > 0);
+		Assert.assertTrue(primeira.failures() > 0);
+		Assert.assertEquals(primeira.arrivals(), segunda.arrivals());
+		Assert.assertEquals(primeira.executions(), segunda.executions());
+		Assert.assertEquals(primeira.completions(), segunda.completions());
+		Assert.assertEquals(primeira.failures(), segunda.failures());
+		Assert.assertEquals(primeira.repeatedExecutions(), segunda.repeatedExecutions());
+		Assert.assertEquals(0, primeira.concurrentExecutions());
+		Assert.assertEquals(0, segunda.concurrentExecutions());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recusaLoteVazio(){
+		new LoadSimulation().batchAmount(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recusaTempoSimuladoNegativo(){
+		new LoadSimulation().simulatedTime(-1, TimeUnit.SECONDS);
+	}
+
+	private static LoadSimulation simulacao(){
+		return new LoadSimulation().arrivalsPerSecond(2_000)
+								   .duplicateRatio(0.3)
+								   .failureRate(0.05)
+								   .workers(16)
+								   .batchAmount(64)
+								   .simulatedTime(3, TimeUnit.SECONDS)
+								   .seed(7);
+	}
+}
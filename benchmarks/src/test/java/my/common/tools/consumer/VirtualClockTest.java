@@ -0,0 +1,39 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VirtualClockTest {
+
+	private final VirtualClock relogio = new VirtualClock();
+
+	@Test
+	public void executaOsEventosDoMesmoInstanteNaOrdemEmQueForamAgendados(){
+		List<String> ordem = new ArrayList<>();
+		relogio.schedule(20, () -> ordem.add("depois"));
+		relogio.schedule(10, () -> ordem.add("primeiro"));
+		relogio.schedule(10, () -> ordem.add("segundo"));
+		relogio.schedule(10, () -> relogio.schedule(0, () -> ordem.add("agendado no instante")));
+		relogio.schedule(10, () -> ordem.add("terceiro"));
+
+		relogio.runUntil(100);
+
+		Assert.assertEquals(Arrays.asList("primeiro", "segundo", "terceiro", "agendado no instante", "depois"), ordem);
+		Assert.assertEquals(100, relogio.now());
+	}
+
+	@Test
+	public void repeteNoPeriodoSemAcumularAtraso(){
+		List<Long> instantes = new ArrayList<>();
+		relogio.schedule(5, () -> {});
+		relogio.every(30, () -> instantes.add(relogio.now()));
+
+		relogio.runUntil(100);
+
+		Assert.assertEquals(Arrays.asList(0L, 30L, 60L, 90L), instantes);
+	}
+}
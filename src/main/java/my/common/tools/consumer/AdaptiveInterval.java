@@ -0,0 +1,57 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the delay until the next pulling cycle of a {@link PeriodicConsumer},
+ * between a minimum and a maximum interval.
+ * <p>
+ * The delay shrinks towards the minimum while the producer keeps filling the free capacity
+ * (a hot queue), and grows towards the maximum (doubling each cycle) while the cycles return nothing.
+ * The delay is never shorter than the time the producer took to answer, so a slow producer is
+ * not pulled more than half of the time.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class AdaptiveInterval {
+
+	private final long minNanos;
+	private final long maxNanos;
+	private long currentNanos;
+
+	private AdaptiveInterval(long minNanos, long maxNanos) {
+		this.minNanos = minNanos;
+		this.maxNanos = maxNanos;
+		this.currentNanos = minNanos;
+	}
+
+	static AdaptiveInterval between(long min, long max, TimeUnit timeUnit){
+		if (min <= 0 || max < min){
+			throw new IllegalArgumentException("The interval must satisfy 0 < min <= max. Informed: min=" + min + ", max=" + max);
+		}
+		return new AdaptiveInterval(timeUnit.toNanos(min), timeUnit.toNanos(max));
+	}
+
+	/**
+	 * Computes the next delay from the result of the last cycle.
+	 *
+	 * @param accepted amount of tasks forwarded to the consumers in the last cycle.
+	 * @param freeCapacity free slots when the cycle started, or a negative value when there is no limit.
+	 * @param producerNanos time spent by the producer to return the tasks.
+	 * @return the delay, in nanoseconds.
+	 */
+	long nextDelay(int accepted, int freeCapacity, long producerNanos){
+		double yield = freeCapacity < 0 ? (accepted > 0 ? 1d : 0d)
+										: freeCapacity == 0 ? 0d : Math.min(1d, (double) accepted / freeCapacity);
+
+		long backoff = Math.min(maxNanos, currentNanos * 2);
+		long delay = minNanos + (long) ((1d - yield) * (backoff - minNanos));
+
+		currentNanos = Math.min(maxNanos, Math.max(delay, producerNanos));
+		return currentNanos;
+	}
+
+	long maxNanos(){
+		return maxNanos;
+	}
+}
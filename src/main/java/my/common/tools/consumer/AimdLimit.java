@@ -0,0 +1,56 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Additive increase, multiplicative decrease {@link ConcurrencyLimit}.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class AimdLimit implements ConcurrencyLimit {
+
+	private static final double BACKOFF_RATIO = 0.9;
+
+	private final int min;
+	private final int max;
+	private final long latencyThresholdNanos;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private double estimate;
+	private volatile int limit;
+
+	AimdLimit(int min, int max, long latencyThresholdNanos) {
+		this.min = min;
+		this.max = max;
+		this.latencyThresholdNanos = latencyThresholdNanos;
+		this.estimate = min;
+		this.limit = min;
+	}
+
+	@Override
+	public int limit() {
+		return limit;
+	}
+
+	@Override
+	public void taskForwarded(TaskWrapper task) {
+		inFlight.incrementAndGet();
+	}
+
+	@Override
+	public void taskFinished(TaskWrapper task, TaskState finalState) {
+		sample(task.finishedAt() - task.startedAt(), finalState != TaskState.COMPLETED, inFlight.getAndDecrement());
+	}
+
+	/**
+	 * @param inFlight tasks waiting/executing when the sampled one finished, itself included.
+	 */
+	synchronized void sample(long latencyNanos, boolean failed, int inFlight){
+		if (failed || latencyNanos > latencyThresholdNanos){
+			estimate = Math.max(min, estimate * BACKOFF_RATIO);
+		} else if (2 * inFlight >= limit){
+			estimate = Math.min(max, estimate + 1d / estimate);
+		}
+		limit = (int) estimate;
+	}
+}
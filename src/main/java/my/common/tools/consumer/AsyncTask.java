@@ -0,0 +1,33 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Task doing its work asynchronously (e.g. a non-blocking I/O call), concluded when the stage it returns completes.
+ * <p>
+ * The consumer only calls {@link #start()} in a worker, freeing it right after, and keeps the task forwarded 
+ * (counting in the amount of tasks waiting/executing) until the stage completes: normally as completed, 
+ * exceptionally as failed. So a few workers may keep many tasks in flight. The conclusion is recorded by the thread 
+ * completing the stage. With the key affinity, a task starts only after the stages of the previous tasks 
+ * with an equal key completed, the workers still being freed meanwhile.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface AsyncTask extends Runnable {
+
+	/**
+	 * Starts the work of this task, without waiting for it.
+	 * 
+	 * @return stage completed when the work is done. On an execution timeout, it is cancelled if it is a 
+	 * {@link java.util.concurrent.CompletableFuture}.
+	 */
+	CompletionStage<?> start();
+
+	/**
+	 * Executes the task synchronously, waiting for its stage, for the callers not aware of the asynchronous tasks.
+	 */
+	@Override
+	default void run(){
+		start().toCompletableFuture().join();
+	}
+}
@@ -0,0 +1,138 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Groups the forwarded tasks in batches, executed by a {@link BulkHandler} in the consumers.
+ * <p>
+ * A batch is sent when it reaches the max size, or when the linger time since its first task elapses.
+ * With a group key, each key has its own open batch. The batches are filled by the distributor thread 
+ * (the linger is scheduled in it too), but the flush may run in the thread stopping the consumer while a late 
+ * distribution is still going, so they are guarded by their own lock. Each task of the batch is concluded on its own, 
+ * feeding the bookkeeping as if it had been executed alone.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class Batcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(Batcher.class);
+
+	private static final Object NO_GROUP = new Object();
+
+	private final BulkHandler handler;
+	private final int maxSize;
+	private final long lingerNanos;
+	private final Function<? super Runnable, ?> groupKey;
+	private final ExecutorService consumerService;
+	private final ScheduledExecutorService distributor;
+	private final Map<Object, List<TaskWrapper>> open = new HashMap<>();
+
+	/**
+	 * @param groupKey gives the group of a task, or null if all the tasks may be in the same batch.
+	 */
+	Batcher(BulkHandler handler, int maxSize, long lingerNanos, Function<? super Runnable, ?> groupKey,
+			ExecutorService consumerService, ScheduledExecutorService distributor) {
+		this.handler = handler;
+		this.maxSize = maxSize;
+		this.lingerNanos = lingerNanos;
+		this.groupKey = groupKey;
+		this.consumerService = consumerService;
+		this.distributor = distributor;
+	}
+
+	/**
+	 * Adds a forwarded task to the open batch of its group, sending the batch if it is full.
+	 */
+	void add(TaskWrapper task){
+		Object key = groupKey == null ? NO_GROUP : groupKey.apply(task.originalJob());
+		Object group = key == null ? NO_GROUP : key;
+		List<TaskWrapper> full = null;
+		synchronized (open) {
+			List<TaskWrapper> batch = open.get(group);
+			if (batch == null){
+				batch = new ArrayList<>(maxSize);
+				open.put(group, batch);
+				lingerThenSend(group, batch);
+			}
+			batch.add(task);
+			if (batch.size() >= maxSize){
+				open.remove(group);
+				full = batch;
+			}
+		}
+		if (full != null){
+			send(full);
+		}
+	}
+
+	private void lingerThenSend(Object group, List<TaskWrapper> batch){
+		try {
+			distributor.schedule(() -> {
+				boolean lingered;
+				synchronized (open) {
+					lingered = open.remove(group, batch);
+				}
+				if (lingered){
+					send(batch);
+				}
+			}, lingerNanos, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			LOGGER.debug("Distributor stopped, the batch will be sent when flushed.");
+		}
+	}
+
+	/**
+	 * Sends all the open batches. May be called from any thread, even while the distributor is still adding.
+	 */
+	void flush(){
+		List<List<TaskWrapper>> batches;
+		synchronized (open) {
+			batches = new ArrayList<>(open.values());
+			open.clear();
+		}
+		batches.forEach(this::send);
+	}
+
+	private void send(List<TaskWrapper> batch){
+		try {
+			consumerService.execute(() -> execute(batch));
+		} catch (RejectedExecutionException e) {
+			LOGGER.error("Consumers stopped, the batch of " + batch.size() + " tasks will not be executed.", e);
+			batch.forEach(task -> task.finished(true));
+		}
+	}
+
+	private void execute(List<TaskWrapper> batch){
+		List<Runnable> jobs = new ArrayList<>(batch.size());
+		for (TaskWrapper task : batch){
+			task.started();
+			jobs.add(task.originalJob());
+		}
+		Set<Runnable> failed;
+		try {
+			Collection<? extends Runnable> failedJobs = handler.handle(Collections.unmodifiableList(jobs));
+			failed = failedJobs == null || failedJobs.isEmpty() ? Collections.emptySet() : new HashSet<>(failedJobs);
+		} catch (Exception e) {
+			LOGGER.error("Error in the bulk execution of " + batch.size() + " tasks.", e);
+			failed = null;
+		}
+		for (TaskWrapper task : batch){
+			task.finished(failed == null || failed.contains(task.originalJob()));
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package my.common.tools.consumer;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Executes a batch of tasks at once (e.g. as a single bulk statement), instead of running each one.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+@FunctionalInterface
+public interface BulkHandler {
+
+	/**
+	 * Executes the batch. Throwing an exception fails all the tasks of the batch.
+	 * 
+	 * @param batch the original tasks of the batch, in the order they were forwarded.
+	 * @return the tasks of the batch that failed, the others being completed.
+	 */
+	Collection<? extends Runnable> handle(List<Runnable> batch) throws Exception;
+
+	/**
+	 * @return handler completing all the tasks of the batch, unless the informed one throws an exception.
+	 */
+	static BulkHandler allOrNothing(Consumer<List<Runnable>> handler){
+		return batch -> {
+			handler.accept(batch);
+			return Collections.emptyList();
+		};
+	}
+}
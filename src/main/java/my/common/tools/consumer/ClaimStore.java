@@ -0,0 +1,67 @@
+package my.common.tools.consumer;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store shared by the consumers of several processes (nodes) pulling the same source, 
+ * through which they split the tasks instead of all of them executing every task.
+ * <p>
+ * Each node keeps a lease by its heartbeats, and claims a task before forwarding it. A claim holds while its node
+ * is alive (its lease not expired), so the tasks of a node that stopped are claimed by the others after the lease.
+ * Implementations are called by the distributor and by the workers, they must be thread safe.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ * @see PeriodicConsumer.ConsumerBuilder#sharding(String, ClaimStore, java.util.function.Function)
+ */
+public interface ClaimStore {
+
+	/**
+	 * Renews the lease of the node, registering it if new.
+	 */
+	void heartbeat(String nodeId);
+
+	/**
+	 * @return time a node is considered alive after its last heartbeat, the nodes renewing their leases 
+	 * at a fraction of it.
+	 */
+	long lease(TimeUnit timeUnit);
+
+	/**
+	 * @return the ids of the nodes whose lease did not expire.
+	 */
+	Set<String> liveNodes();
+
+	/**
+	 * Removes the node, its claims being free right away.
+	 */
+	void leave(String nodeId);
+
+	/**
+	 * Claims a task for the node, unless it is claimed by another live node.
+	 * 
+	 * @return true if the node holds the claim (even if it already held it).
+	 */
+	boolean tryClaim(String nodeId, String taskKey);
+
+	/**
+	 * Releases the claim of a task, if held by the node.
+	 */
+	void release(String nodeId, String taskKey);
+
+	/**
+	 * Store kept in files of a directory shared by the nodes (e.g. in the same host or a network file system), 
+	 * each claim being checked and written under a lock of its file.
+	 * 
+	 * @param directory the shared directory, created if it does not exist.
+	 * @param lease time a node is considered alive after its last heartbeat.
+	 * @param timeUnit unit of the lease.
+	 */
+	static ClaimStore sharedDirectory(Path directory, long lease, TimeUnit timeUnit){
+		if (lease <= 0){
+			throw new IllegalArgumentException("The lease must be positive. Informed: " + lease);
+		}
+		return new FileClaimStore(directory, timeUnit.toMillis(lease));
+	}
+}
@@ -0,0 +1,220 @@
+package my.common.tools.consumer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Remembers the ids of the completed tasks while the producer keeps returning them,
+ * in open-addressing tables of primitive longs, optionally off-heap.
+ * <p>
+ * Each slot holds the id and the last cycle (plus one, zero meaning an empty slot) in which the task was
+ * completed or returned, 16 bytes per slot with the table at most half full. The tasks themselves are not referenced,
+ * so their captured state can be collected right after the conclusion. Collisions are resolved by linear probing,
+ * and removals shift the following entries back, so there are no tombstones.
+ * <p>
+ * The ids are split among segments by the high bits of their hash, each segment with its own table and lock,
+ * so the workers concluding tasks and the distributor checking the obtained ones rarely wait for each other.
+ * <p>
+ * At the end of each cycle, a cursor sweeps each table from where it stopped, forgetting the entries not stamped
+ * in the cycle; the amount of slots kept in a sweep is bounded by the amount of stamps in the cycle, as in
+ * {@link UntilNoLongerReturnedMemory}. The failed tasks are not remembered, they are forgotten on conclusion.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class CompactTaskMemory implements CompletedTaskMemory {
+
+	private static final int SEGMENT_BITS = 4;
+	private static final int INITIAL_SEGMENT_CAPACITY = 64;
+	private static final long EMPTY = 0;
+
+	private final ToLongFunction<? super Runnable> taskId;
+	private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+	private volatile long cycle;
+
+	CompactTaskMemory(ToLongFunction<? super Runnable> taskId, boolean offHeap) {
+		this.taskId = taskId;
+		for (int i = 0; i < segments.length; i++){
+			segments[i] = new Segment(offHeap);
+		}
+	}
+
+	@Override
+	public void remembered(Runnable job, Consumer<Runnable> evicted) {
+		long hash = hashOf(taskId.applyAsLong(job));
+		segmentOf(hash).remembered(hash, cycle + 1);
+	}
+
+	@Override
+	public void returned(Runnable job) {
+		returnedIfRemembered(job);
+	}
+
+	/**
+	 * Stamps the task, if remembered.
+	 *
+	 * @return true if the task is remembered.
+	 */
+	boolean returnedIfRemembered(Runnable job){
+		long hash = hashOf(taskId.applyAsLong(job));
+		return segmentOf(hash).returnedIfRemembered(hash, cycle + 1);
+	}
+
+	/**
+	 * Moves to the next cycle before sweeping, so a task stamped during the sweep is not forgotten.
+	 */
+	@Override
+	public void cycleFinished(Consumer<Runnable> evicted) {
+		long finishedStamp = cycle + 1;
+		cycle = finishedStamp;
+		for (Segment segment : segments){
+			segment.sweep(finishedStamp);
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments){
+			size += segment.size;
+		}
+		return size;
+	}
+
+	private Segment segmentOf(long hash){
+		return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+	}
+
+	/**
+	 * Spreads the ids, the hash (a bijection) being kept in the slots instead of the id.
+	 */
+	private static long hashOf(long id){
+		return id * 0x9E3779B97F4A7C15L;
+	}
+
+	/**
+	 * One table of the memory, guarded by its own monitor.
+	 */
+	private static final class Segment {
+		private final boolean offHeap;
+
+		private LongBuffer slots;
+		private int mask;
+		private volatile int size;
+		private int cursor;
+		private int returnedInCycle;
+
+		private Segment(boolean offHeap) {
+			this.offHeap = offHeap;
+			allocate(INITIAL_SEGMENT_CAPACITY);
+		}
+
+		private void allocate(int capacity){
+			slots = offHeap ? ByteBuffer.allocateDirect(capacity * 2 * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+							: LongBuffer.allocate(capacity * 2);
+			mask = capacity - 1;
+			size = 0;
+			cursor = 0;
+		}
+
+		private synchronized void remembered(long hash, long stamp){
+			int slot = find(hash);
+			if (slot >= 0){
+				slots.put(2 * slot + 1, stamp);
+				return;
+			}
+			if (size + 1 > (mask + 1) / 2){
+				resize();
+			}
+			insert(hash, stamp);
+		}
+
+		private synchronized boolean returnedIfRemembered(long hash, long stamp){
+			if (size == 0){
+				return false;
+			}
+			int slot = find(hash);
+			if (slot < 0){
+				return false;
+			}
+			slots.put(2 * slot + 1, stamp);
+			returnedInCycle++;
+			return true;
+		}
+
+		private synchronized void sweep(long finishedStamp){
+			int budget = 2 * (returnedInCycle + 1);
+			returnedInCycle = 0;
+			int capacity = mask + 1;
+			for (int scanned = 0; scanned < capacity && budget > 0 && size > 0;){
+				long stamp = slots.get(2 * cursor + 1);
+				if (stamp != EMPTY && stamp < finishedStamp){
+					removeAt(cursor);
+					continue;
+				}
+				cursor = (cursor + 1) & mask;
+				scanned++;
+				budget--;
+			}
+		}
+
+		private int find(long hash){
+			for (int slot = indexOf(hash); ; slot = (slot + 1) & mask){
+				long stamp = slots.get(2 * slot + 1);
+				if (stamp == EMPTY){
+					return -1;
+				}
+				if (slots.get(2 * slot) == hash){
+					return slot;
+				}
+			}
+		}
+
+		private void insert(long hash, long stamp){
+			int slot = indexOf(hash);
+			while (slots.get(2 * slot + 1) != EMPTY){
+				slot = (slot + 1) & mask;
+			}
+			slots.put(2 * slot, hash);
+			slots.put(2 * slot + 1, stamp);
+			size++;
+		}
+
+		private void removeAt(int slot){
+			int hole = slot;
+			for (int next = (hole + 1) & mask; slots.get(2 * next + 1) != EMPTY; next = (next + 1) & mask){
+				int home = indexOf(slots.get(2 * next));
+				if (((next - home) & mask) >= ((next - hole) & mask)){
+					slots.put(2 * hole, slots.get(2 * next));
+					slots.put(2 * hole + 1, slots.get(2 * next + 1));
+					hole = next;
+				}
+			}
+			slots.put(2 * hole, 0);
+			slots.put(2 * hole + 1, EMPTY);
+			size--;
+		}
+
+		private void resize(){
+			LongBuffer previous = slots;
+			int previousCapacity = mask + 1;
+			allocate(previousCapacity * 2);
+			for (int slot = 0; slot < previousCapacity; slot++){
+				long stamp = previous.get(2 * slot + 1);
+				if (stamp != EMPTY){
+					insert(previous.get(2 * slot), stamp);
+				}
+			}
+		}
+
+		/**
+		 * @return the home slot of the hash, from its low bits (the high ones choose the segment).
+		 */
+		private int indexOf(long hash){
+			return (int) (hash ^ (hash >>> 29)) & mask;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Memory of the concluded (completed or failed) tasks, deciding when they can be forgotten, 
+ * after which a completed task returned again by the producer is executed again.
+ * Only the original jobs are remembered, not their wrappers.
+ * <p>
+ * The eviction is incremental: each call examines only the entries it may evict, 
+ * plus an amount bounded by the tasks seen in the call, never the whole memory.
+ * Implementations are called concurrently by the workers and by the distributor.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface CompletedTaskMemory {
+
+	/**
+	 * A task was concluded and must be remembered.
+	 * 
+	 * @param job the original job of the concluded task.
+	 * @param evicted receives the jobs to be forgotten because of this new entry.
+	 */
+	void remembered(Runnable job, Consumer<Runnable> evicted);
+
+	/**
+	 * A remembered job was returned again by the producer.
+	 */
+	void returned(Runnable job);
+
+	/**
+	 * A pulling cycle finished.
+	 * 
+	 * @param evicted receives the jobs to be forgotten.
+	 */
+	void cycleFinished(Consumer<Runnable> evicted);
+
+	/**
+	 * @return amount of remembered tasks.
+	 */
+	int size();
+
+	/**
+	 * Remembers the concluded tasks while the producer keeps returning them (the original behavior).
+	 */
+	static CompletedTaskMemory untilNoLongerReturned(){
+		return new UntilNoLongerReturnedMemory();
+	}
+
+	/**
+	 * Remembers the concluded tasks for a fixed time after their conclusion.
+	 */
+	static CompletedTaskMemory timeToLive(long duration, TimeUnit timeUnit){
+		if (duration <= 0){
+			throw new IllegalArgumentException("The time to live must be positive. Informed: " + duration);
+		}
+		return new TimeToLiveMemory(timeUnit.toNanos(duration));
+	}
+
+	/**
+	 * Remembers at most {@code maxEntries} concluded tasks, forgetting the least recently 
+	 * returned ones first (second chance approximation of LRU).
+	 */
+	static CompletedTaskMemory maxEntries(int maxEntries){
+		if (maxEntries <= 0){
+			throw new IllegalArgumentException("The max entries must be positive. Informed: " + maxEntries);
+		}
+		return new MaxEntriesMemory(maxEntries);
+	}
+
+	/**
+	 * Remembers only the ids of the completed {@link IdentifiedTask}s (while the producer keeps returning them), 
+	 * in a table of primitive longs on the heap, instead of the tasks themselves. The failed tasks are not remembered.
+	 */
+	static CompletedTaskMemory compact(){
+		return compact(task -> ((IdentifiedTask) task).taskId(), false);
+	}
+
+	/**
+	 * Remembers only the ids of the completed tasks (while the producer keeps returning them), 
+	 * in a table of primitive longs, about 32 bytes per task. The failed tasks are not remembered.
+	 * 
+	 * @param taskId gives the id of a task, two tasks with the same id being considered the same task.
+	 * @param offHeap true to keep the table in direct memory, out of the reach of the garbage collector.
+	 */
+	static CompletedTaskMemory compact(ToLongFunction<? super Runnable> taskId, boolean offHeap){
+		return new CompactTaskMemory(taskId, offHeap);
+	}
+}
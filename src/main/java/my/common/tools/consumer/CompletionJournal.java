@@ -0,0 +1,234 @@
+package my.common.tools.consumer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of the completed tasks, kept in a memory-mapped file, 
+ * so a restarted consumer does not execute again the tasks completed before the restart.
+ * <p>
+ * Each record holds a state byte, the length of the key and the key (UTF-8). The state byte is written last,
+ * so a record torn by a crash reads as the end of the journal. The writes go to the mapped pages, surviving 
+ * the end of the process without a system call per record; they reach the disk when the journal is compacted or closed.
+ * <p>
+ * On opening, the completed keys are recovered: the jobs with those keys are treated as completed when first returned
+ * by the producer (from then on, remembered as defined by the memory of the consumer), and the ones not returned 
+ * up to the first cycle going through all the jobs of the producer are forgotten. A cycle stopped by the capacity
+ * does not forget them, as the jobs after the last one forwarded were not seen. When the records are mostly obsolete, 
+ * the live keys are rewritten to a new file replacing the journal.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class CompletionJournal implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CompletionJournal.class);
+
+	private static final byte END = 0;
+	private static final byte COMPLETED = 1;
+	private static final byte FORGOTTEN = 2;
+	private static final int HEADER_SIZE = 3;
+	private static final int MAX_KEY_LENGTH = 0xFFFF;
+	private static final int INITIAL_SIZE = 1 << 20;
+	private static final int MIN_RECORDS_TO_COMPACT = 4096;
+
+	private final Path file;
+	private final Function<? super Runnable, String> keyOf;
+	private final Set<String> live = new HashSet<>();
+	private final Set<String> recovered = ConcurrentHashMap.newKeySet();
+
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int records;
+	private boolean recovering = true;
+
+	private CompletionJournal(Path file, Function<? super Runnable, String> keyOf) {
+		this.file = file;
+		this.keyOf = keyOf;
+	}
+
+	/**
+	 * Opens the journal, creating the file if it does not exist, and recovers the completed keys.
+	 * 
+	 * @param keyOf gives a key identifying the job across restarts.
+	 */
+	static CompletionJournal open(Path file, Function<? super Runnable, String> keyOf){
+		CompletionJournal journal = new CompletionJournal(file, keyOf);
+		try {
+			journal.map();
+			journal.replay();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error opening the completion journal " + file, e);
+		}
+		journal.recovered.addAll(journal.live);
+		return journal;
+	}
+
+	private void map() throws IOException{
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, channel.size()));
+	}
+
+	private void replay(){
+		while (buffer.remaining() >= HEADER_SIZE){
+			int start = buffer.position();
+			byte state = buffer.get();
+			int length = buffer.getShort() & MAX_KEY_LENGTH;
+			if ((state != COMPLETED && state != FORGOTTEN) || buffer.remaining() < length){
+				buffer.position(start);
+				return;
+			}
+			byte[] key = new byte[length];
+			buffer.get(key);
+			if (state == COMPLETED){
+				live.add(new String(key, StandardCharsets.UTF_8));
+			} else {
+				live.remove(new String(key, StandardCharsets.UTF_8));
+			}
+			records++;
+		}
+	}
+
+	/**
+	 * @return true if the job was completed before the journal was opened, and not seen since then.
+	 */
+	boolean recovered(Runnable job){
+		return !recovered.isEmpty() && recovered.remove(keyOf.apply(job));
+	}
+
+	void completed(Runnable job){
+		String key = keyOf.apply(job);
+		synchronized (this) {
+			if (live.add(key)){
+				append(COMPLETED, key);
+			}
+		}
+	}
+
+	void forgotten(Runnable job){
+		String key = keyOf.apply(job);
+		synchronized (this) {
+			if (live.remove(key)){
+				append(FORGOTTEN, key);
+			}
+		}
+	}
+
+	/**
+	 * Forgets the recovered keys not returned yet, if the cycle went through all the jobs of the producer, 
+	 * and compacts the journal when needed.
+	 * 
+	 * @param producerExhausted whether all the jobs returned by the producer in the cycle were seen.
+	 */
+	void cycleFinished(boolean producerExhausted){
+		List<String> notReturned = new ArrayList<>();
+		synchronized (this) {
+			if (recovering && producerExhausted){
+				recovering = false;
+				notReturned.addAll(recovered);
+				recovered.clear();
+			}
+			for (String key : notReturned){
+				if (live.remove(key)){
+					append(FORGOTTEN, key);
+				}
+			}
+			if (records >= MIN_RECORDS_TO_COMPACT && records > 2 * live.size()){
+				compact();
+			}
+		}
+	}
+
+	/**
+	 * @return amount of completed keys in the journal.
+	 */
+	synchronized int size(){
+		return live.size();
+	}
+
+	private void append(byte state, String key){
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_KEY_LENGTH){
+			LOGGER.warn("The journal key must have up to {} bytes, it will not be journaled: {}", MAX_KEY_LENGTH, key);
+			return;
+		}
+		ensureRemaining(HEADER_SIZE + bytes.length + 1);
+		int start = buffer.position();
+		buffer.position(start + 1);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+		buffer.put(buffer.position(), END);
+		buffer.put(start, state);
+		records++;
+	}
+
+	private void ensureRemaining(int bytes){
+		if (buffer.remaining() >= bytes){
+			return;
+		}
+		int position = buffer.position();
+		try {
+			buffer.force();
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(2L * buffer.capacity(), position + bytes));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error growing the completion journal " + file, e);
+		}
+		buffer.position(position);
+	}
+
+	private void compact(){
+		Path compacting = file.resolveSibling(file.getFileName() + ".compacting");
+		try (FileChannel target = FileChannel.open(compacting, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+												   StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (String key : live){
+				byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+				ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + bytes.length);
+				record.put(COMPLETED).putShort((short) bytes.length).put(bytes).flip();
+				while (record.hasRemaining()){
+					target.write(record);
+				}
+			}
+			target.force(true);
+		} catch (IOException e) {
+			LOGGER.error("Error compacting the completion journal " + file + ", it keeps growing.", e);
+			return;
+		}
+		try {
+			buffer.force();
+			channel.close();
+			Files.move(compacting, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.error("Error replacing the completion journal " + file + ", it keeps growing.", e);
+		}
+		try {
+			map();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error reopening the completion journal " + file, e);
+		}
+		records = 0;
+		replay();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+}
@@ -0,0 +1,86 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forwards the events to several listeners, in the order they were registered.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class CompositeTaskLifecycleListener implements TaskLifecycleListener {
+
+	private final TaskLifecycleListener[] listeners;
+
+	private CompositeTaskLifecycleListener(TaskLifecycleListener[] listeners) {
+		this.listeners = listeners;
+	}
+
+	/**
+	 * @return a single listener for all the informed ones, ignoring the {@link TaskLifecycleListener#NONE} ones.
+	 */
+	static TaskLifecycleListener of(List<? extends TaskLifecycleListener> listeners){
+		List<TaskLifecycleListener> active = new ArrayList<>();
+		for (TaskLifecycleListener listener : listeners){
+			if (listener != null && listener != TaskLifecycleListener.NONE && listener != ConsumerMetrics.NONE){
+				active.add(listener);
+			}
+		}
+		if (active.isEmpty()){
+			return TaskLifecycleListener.NONE;
+		}
+		if (active.size() == 1){
+			return active.get(0);
+		}
+		return new CompositeTaskLifecycleListener(active.toArray(new TaskLifecycleListener[active.size()]));
+	}
+
+	@Override
+	public void taskObtained(Runnable job) {
+		for (TaskLifecycleListener listener : listeners){
+			listener.taskObtained(job);
+		}
+	}
+
+	@Override
+	public void taskDiscarded(Runnable job, TaskState state) {
+		for (TaskLifecycleListener listener : listeners){
+			listener.taskDiscarded(job, state);
+		}
+	}
+
+	@Override
+	public void taskForwarded(TaskWrapper task) {
+		for (TaskLifecycleListener listener : listeners){
+			listener.taskForwarded(task);
+		}
+	}
+
+	@Override
+	public void taskFinished(TaskWrapper task, TaskState finalState) {
+		for (TaskLifecycleListener listener : listeners){
+			listener.taskFinished(task, finalState);
+		}
+	}
+
+	@Override
+	public void taskQuarantined(TaskWrapper task) {
+		for (TaskLifecycleListener listener : listeners){
+			listener.taskQuarantined(task);
+		}
+	}
+
+	@Override
+	public void taskTimedOut(TaskWrapper task) {
+		for (TaskLifecycleListener listener : listeners){
+			listener.taskTimedOut(task);
+		}
+	}
+
+	@Override
+	public void taskForgotten(Runnable job) {
+		for (TaskLifecycleListener listener : listeners){
+			listener.taskForgotten(job);
+		}
+	}
+}
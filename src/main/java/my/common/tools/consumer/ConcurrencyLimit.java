@@ -0,0 +1,52 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit of tasks waiting/executing in a consumer, adjusted from the execution latency and errors 
+ * of the tasks, as reported to it as a {@link TaskLifecycleListener}.
+ * <p>
+ * Replaces a fixed batch amount, which is too low (wasting capacity) or too high (overloading the
+ * downstream systems and inflating the latency) for part of the time.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface ConcurrencyLimit extends TaskLifecycleListener {
+
+	/**
+	 * @return the current limit of tasks waiting/executing, at least one.
+	 */
+	int limit();
+
+	/**
+	 * Additive increase, multiplicative decrease: the limit grows by one per limit-sized round of tasks 
+	 * concluded within the latency threshold (while the limit is being used), and is cut by 10% by each task 
+	 * failing or exceeding the threshold.
+	 * 
+	 * @param min the floor of the limit.
+	 * @param max the ceiling of the limit.
+	 * @param latencyThreshold execution time above which a task signals overload.
+	 * @param timeUnit unit of the latency threshold.
+	 */
+	static ConcurrencyLimit aimd(int min, int max, long latencyThreshold, TimeUnit timeUnit){
+		if (min <= 0 || max < min){
+			throw new IllegalArgumentException("The limit must satisfy 0 < min <= max. Informed: min=" + min + ", max=" + max);
+		}
+		return new AimdLimit(min, max, timeUnit.toNanos(latencyThreshold));
+	}
+
+	/**
+	 * Latency gradient: the limit follows the ratio between the long term average latency and the latency 
+	 * of the last round of tasks, growing (by its square root, as queueing allowance) while the latency holds,
+	 * and shrinking as soon as it rises. Failures in a round halve its gradient.
+	 * 
+	 * @param min the floor of the limit.
+	 * @param max the ceiling of the limit.
+	 */
+	static ConcurrencyLimit gradient(int min, int max){
+		if (min <= 0 || max < min){
+			throw new IllegalArgumentException("The limit must satisfy 0 < min <= max. Informed: min=" + min + ", max=" + max);
+		}
+		return new GradientLimit(min, max);
+	}
+}
@@ -0,0 +1,28 @@
+package my.common.tools.consumer;
+
+/**
+ * Receives the measures of the tasks life cycle and of the pulling cycles of a consumer.
+ * <p>
+ * The timestamps of each step are available in the {@link TaskWrapper} (obtained, forwarded, 
+ * started and finished). Every method does nothing by default, and implementations are 
+ * called concurrently by the distributor and by the workers, so they must be cheap and thread safe.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface ConsumerMetrics extends TaskLifecycleListener {
+
+	/**
+	 * Metrics discarding every measure, used when none is defined.
+	 */
+	ConsumerMetrics NONE = new ConsumerMetrics() {};
+
+	/**
+	 * A pulling cycle finished.
+	 * 
+	 * @param durationNanos time spent in the whole cycle.
+	 * @param producerNanos time spent by the producer to return the tasks.
+	 * @param forwarded amount of tasks forwarded in the cycle.
+	 */
+	default void pollFinished(long durationNanos, long producerNanos, int forwarded){
+	}
+}
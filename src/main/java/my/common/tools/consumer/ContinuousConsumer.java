@@ -0,0 +1,353 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import my.common.tools.producer.InfiniteTaskProducer;
+
+/**
+ * Consumer pulling the tasks from an {@link InfiniteTaskProducer} as fast as the consumers free up,
+ * without waiting for a time interval between the tasks.
+ * <p>
+ * The pulled tasks go to a bounded buffer: the pulling stops when the buffer reaches its high watermark,
+ * and resumes only after the consumers drain it down to the low watermark.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public class ContinuousConsumer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContinuousConsumer.class);
+
+	private final TaskBookkeeping bookkeeping;
+	private final ExecutorService consumerService;
+	private final InfiniteTaskProducer producer;
+	private final ExecutorService distributor;
+	private final BlockingQueue<TaskWrapper> buffer;
+	private final int lowWatermark;
+	private final int highWatermark;
+	private final long idleWaitNanos;
+	private final Semaphore slots;
+	private final TaskWatchdog watchdog;
+
+	private final ReentrantLock bufferLock = new ReentrantLock();
+	private final Condition bufferDrained = bufferLock.newCondition();
+
+	private volatile boolean running;
+
+	private ContinuousConsumer(ExecutorService consumerService, InfiniteTaskProducer producer, ExecutorService distributor,
+							   int lowWatermark, int highWatermark, long idleWaitNanos, int batchAmount,
+							   CompletedTaskMemory completedTaskMemory, RetryPolicy retryPolicy, long executionTimeoutNanos,
+							   TaskLifecycleListener listener) {
+		this.bookkeeping = new TaskBookkeeping(completedTaskMemory, listener, this::slotReleased, retryPolicy, null);
+		this.watchdog = executionTimeoutNanos < 0 ? null : new TaskWatchdog(executionTimeoutNanos, bookkeeping::recordsTimedOutTask);
+		this.consumerService = consumerService;
+		this.producer = producer;
+		this.distributor = distributor;
+		this.buffer = new ArrayBlockingQueue<>(highWatermark);
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+		this.idleWaitNanos = idleWaitNanos;
+		this.slots = batchAmount > 0 ? new Semaphore(batchAmount) : null;
+	}
+
+	/**
+	 * Begins creation of new ContinuousConsumer, using builder.
+	 *
+	 * @return builder class for {@link ContinuousConsumer}
+	 */
+	public static ContinuousConsumerBuilder of(){
+		return new ContinuousConsumerBuilder();
+	}
+
+	public static final class ContinuousConsumerBuilder{
+		private ExecutorService consumerService;
+		private InfiniteTaskProducer producer;
+		private int lowWatermark = 16;
+		private int highWatermark = 64;
+		private long idleWait = 100;
+		private TimeUnit idleWaitUnit = TimeUnit.MILLISECONDS;
+		private int batchAmount;
+		private CompletedTaskMemory completedTaskMemory;
+		private RetryPolicy retryPolicy;
+		private long executionTimeoutNanos = -1;
+		private Function<? super Runnable, ?> affinityKey;
+		private final List<TaskLifecycleListener> listeners = new ArrayList<>();
+
+		public ContinuousConsumerBuilder producer(InfiniteTaskProducer producer){
+			this.producer = Objects.requireNonNull(producer, "producer");
+			return this;
+		}
+
+		public ContinuousConsumerBuilder consumerService(ExecutorService consumerService){
+			this.consumerService = Objects.requireNonNull(consumerService, "consumerService");
+			return this;
+		}
+
+		/**
+		 * Executes each task in its own virtual thread (Java 21 or later) instead of a pool of platform threads,
+		 * replacing the {@link #consumerService(ExecutorService)}. A semaphore limits the tasks executing at the same time.
+		 * On older Java versions, a fixed pool of {@code maxConcurrency} platform threads is used.
+		 */
+		public ContinuousConsumerBuilder virtualThreads(int maxConcurrency){
+			this.consumerService = VirtualThreads.executor(maxConcurrency);
+			return this;
+		}
+
+		/**
+		 * Defines the limits of the buffer between the producer and the consumers.
+		 *
+		 * @param low amount of buffered tasks below which the pulling resumes.
+		 * @param high amount of buffered tasks at which the pulling stops (the buffer capacity).
+		 * @return this builder.
+		 */
+		public ContinuousConsumerBuilder watermarks(int low, int high){
+			if (low < 0 || high <= 0 || low >= high){
+				throw new IllegalArgumentException("The watermarks must satisfy 0 <= low < high. Informed: low=" + low + ", high=" + high);
+			}
+			this.lowWatermark = low;
+			this.highWatermark = high;
+			return this;
+		}
+
+		/**
+		 * Time to wait before asking the producer again, when it has no task available.
+		 */
+		public ContinuousConsumerBuilder idleWait(long idleWait, TimeUnit timeUnit){
+			this.idleWait = idleWait;
+			this.idleWaitUnit = Objects.requireNonNull(timeUnit, "timeUnit");
+			return this;
+		}
+
+		/**
+		 * Maximum amount of tasks waiting/executing in the consumers, zero or less means no limit.
+		 */
+		public ContinuousConsumerBuilder batchAmount(int batchAmount){
+			this.batchAmount = batchAmount;
+			return this;
+		}
+
+		/**
+		 * Remembers the concluded tasks (not executing them again when supplied by the producer) as defined by the memory.
+		 * By default, only the tasks waiting/executing are not executed again.
+		 */
+		public ContinuousConsumerBuilder completedTaskMemory(CompletedTaskMemory completedTaskMemory){
+			this.completedTaskMemory = Objects.requireNonNull(completedTaskMemory, "completedTaskMemory");
+			return this;
+		}
+
+		/**
+		 * Executes the tasks with equal keys (e.g. {@link KeyedTask#keyOf(Runnable)}) one after another,
+		 * and the ones with distinct keys in parallel. By default, any distinct tasks may execute in parallel.
+		 */
+		public ContinuousConsumerBuilder keyAffinity(Function<? super Runnable, ?> affinityKey){
+			this.affinityKey = Objects.requireNonNull(affinityKey, "affinityKey");
+			return this;
+		}
+
+		/**
+		 * Delays the next attempt of the failed tasks as defined by the policy, quarantining the ones that fail too many times.
+		 * By default, a failed task is forwarded again as soon as the producer supplies it.
+		 */
+		public ContinuousConsumerBuilder retryPolicy(RetryPolicy retryPolicy){
+			this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy");
+			return this;
+		}
+
+		/**
+		 * Interrupts the tasks executing longer than the timeout (or the one of a {@link TimedTask}), 
+		 * concluding them as failed and releasing their slots. By default, a task may execute for any time.
+		 * 
+		 * @param timeout longest time a task may execute, zero for only the timeouts of the {@link TimedTask}s.
+		 */
+		public ContinuousConsumerBuilder executionTimeout(long timeout, TimeUnit timeUnit){
+			if (timeout < 0){
+				throw new IllegalArgumentException("The timeout can not be negative. Informed: " + timeout);
+			}
+			this.executionTimeoutNanos = Objects.requireNonNull(timeUnit, "timeUnit").toNanos(timeout);
+			return this;
+		}
+
+		/**
+		 * Defines where the measures of the tasks life cycle are sent, e.g. a {@link RecordingConsumerMetrics}. 
+		 * By default, nothing is measured.
+		 */
+		public ContinuousConsumerBuilder metrics(ConsumerMetrics metrics){
+			return listener(metrics);
+		}
+
+		/**
+		 * Registers a listener of the tasks life cycle, e.g. {@link TaskLifecycleListener#logging()}.
+		 * By default, nothing is reported.
+		 */
+		public ContinuousConsumerBuilder listener(TaskLifecycleListener listener){
+			this.listeners.add(Objects.requireNonNull(listener, "listener"));
+			return this;
+		}
+
+		public final ContinuousConsumer create(){
+			ExecutorService distributor = Executors.newFixedThreadPool(2, Executors.defaultThreadFactory());
+			ExecutorService consumers = affinityKey == null ? consumerService : new KeyAffinityExecutor(consumerService, affinityKey);
+			return new ContinuousConsumer(consumers, producer, distributor,
+										  lowWatermark, highWatermark, idleWaitUnit.toNanos(idleWait), batchAmount,
+										  completedTaskMemory, retryPolicy, executionTimeoutNanos, CompositeTaskLifecycleListener.of(listeners));
+		}
+	}
+
+	/**
+	 * Starts the pulling in Producer.
+	 *
+	 * @return The instance of {@link ContinuousConsumer} being defined, for further control.
+	 */
+	public ContinuousConsumer distributeTheTasks(){
+		LOGGER.info("Starting task distributor... ");
+		if (distributor.isShutdown()){
+			throw new IllegalStateException("This consumer already disconnected. You will need to create a new one.");
+		}
+		running = true;
+		distributor.execute(this::pull);
+		distributor.execute(this::dispatch);
+		LOGGER.info("Started.");
+		return this;
+	}
+
+	/**
+	 * Stops the pulling, discarding the buffered tasks, and waits the tasks already forwarded.
+	 */
+	public ContinuousConsumer finishesWaitingAtTheMost(long timeout, TimeUnit timeUnit) throws InterruptedException{
+		LOGGER.info("Requesting stop (waiting tasks conclusion to finish... )");
+		running = false;
+		LOGGER.info("- Stopping the distributor... ");
+		distributor.shutdownNow();
+		distributor.awaitTermination(timeout, timeUnit);
+		LOGGER.info("- Stopping the consumers... ");
+		consumerService.shutdown();
+		consumerService.awaitTermination(timeout, timeUnit);
+		if (watchdog != null){
+			watchdog.stop();
+		}
+		LOGGER.info("Stoped (" + buffer.size() + " buffered tasks discarded).");
+		buffer.clear();
+		return this;
+	}
+
+	/**
+	 * @return read-only view of the tasks quarantined by the retry policy.
+	 */
+	public Set<Runnable> quarantined(){
+		return bookkeeping.quarantined();
+	}
+
+	/**
+	 * Releases a quarantined task, so it is executed again when supplied by the producer.
+	 *
+	 * @return false if the task was not quarantined.
+	 */
+	public boolean releaseFromQuarantine(Runnable task){
+		return bookkeeping.release(task);
+	}
+
+	private void pull(){
+		try {
+			while (running){
+				awaitBufferBelowLowWatermark();
+				Supplier<Runnable> nextTask = producer.nextTask();
+				Runnable task = nextTask == null ? null : nextTask.get();
+				if (task == null){
+					bookkeeping.cycleFinished();
+					TimeUnit.NANOSECONDS.sleep(idleWaitNanos);
+					continue;
+				}
+				if (bookkeeping.isNew(task)){
+					buffer.put(bookkeeping.wrap(task));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			LOGGER.error("Error pulling the producer, the pulling is stopped.", e);
+		}
+	}
+
+	private void awaitBufferBelowLowWatermark() throws InterruptedException{
+		if (buffer.size() < highWatermark){
+			return;
+		}
+		bookkeeping.cycleFinished();
+		bufferLock.lockInterruptibly();
+		try {
+			while (running && buffer.size() > lowWatermark){
+				bufferDrained.await();
+			}
+		} finally {
+			bufferLock.unlock();
+		}
+	}
+
+	private void dispatch(){
+		try {
+			while (running){
+				if (slots != null){
+					slots.acquire();
+				}
+				TaskWrapper task = buffer.take();
+				signalIfDrained();
+				if (!bookkeeping.isStillNew(task.originalJob()) || !bookkeeping.recordsForwardedTask(task)){
+					slotReleased();
+					continue;
+				}
+				if (watchdog != null){
+					task.watchedBy(watchdog);
+				}
+				execute(task);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Executes a forwarded task, concluding it as failed (so its slot is released) if the consumers reject it.
+	 */
+	private void execute(TaskWrapper task){
+		try {
+			consumerService.execute(task);
+		} catch (RejectedExecutionException e) {
+			LOGGER.error("Consumers rejected the task " + task + ", it is concluded as failed.", e);
+			task.finished(true);
+		}
+	}
+
+	private void signalIfDrained(){
+		if (buffer.size() > lowWatermark){
+			return;
+		}
+		bufferLock.lock();
+		try {
+			bufferDrained.signal();
+		} finally {
+			bufferLock.unlock();
+		}
+	}
+
+	private void slotReleased(){
+		if (slots != null){
+			slots.release();
+		}
+	}
+}
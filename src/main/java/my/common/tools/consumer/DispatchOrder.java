@@ -0,0 +1,48 @@
+package my.common.tools.consumer;
+
+import java.util.Comparator;
+
+/**
+ * Orders in which the waiting tasks can be forwarded to the consumers, based on the {@link PrioritizedTask} values.
+ * <p>
+ * They can be combined, e.g. {@code DispatchOrder.byPriority().thenComparing(DispatchOrder.earliestDeadlineFirst())}.
+ * The tasks ordered as equal are forwarded in the order they were obtained.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public final class DispatchOrder {
+
+	private static final PrioritizedTask DEFAULTS = new PrioritizedTask() {
+		@Override
+		public void run() {
+		}
+	};
+
+	private DispatchOrder() {
+	}
+
+	/**
+	 * @return order forwarding the tasks with the highest priority first.
+	 */
+	public static Comparator<Runnable> byPriority(){
+		return Comparator.comparingInt((Runnable job) -> prioritized(job).priority()).reversed();
+	}
+
+	/**
+	 * @return order forwarding the tasks with the earliest deadline first, the ones without deadline at last.
+	 */
+	public static Comparator<Runnable> earliestDeadlineFirst(){
+		return Comparator.comparingLong(job -> prioritized(job).deadline());
+	}
+
+	/**
+	 * @return order forwarding the tasks with the lowest estimated cost first, the ones without estimate at last.
+	 */
+	public static Comparator<Runnable> shortestJobFirst(){
+		return Comparator.comparingLong(job -> prioritized(job).estimatedCost());
+	}
+
+	private static PrioritizedTask prioritized(Runnable job){
+		return job instanceof PrioritizedTask ? (PrioritizedTask) job : DEFAULTS;
+	}
+}
@@ -0,0 +1,241 @@
+package my.common.tools.consumer;
+
+import java.util.AbstractQueue;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bounded queue of the jobs accepted but not yet forwarded, each job being queued only once.
+ * <p>
+ * The jobs are taken in the order they were queued, or by a {@link DispatchOrder} (the jobs ordered as equal
+ * keeping the order they were queued). When full, an ordered queue still takes the jobs ranked before its last one, 
+ * dropping the last (still pending in the producer, so obtained again later), so the urgent jobs never wait 
+ * behind a full queue of others. Thread safe, as it is shared by the fetching and the forwarding threads.
+ * Each entry keeps when its job was obtained from the producer, so the time staged is part of the task latency.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class DispatchQueue {
+
+	private final int capacity;
+	private final Queue<Entry> entries;
+	private final OrderedEntries ordered;
+	private final Set<Runnable> queued = new HashSet<>();
+	private long sequence;
+
+	private DispatchQueue(int capacity, Queue<Entry> entries, OrderedEntries ordered) {
+		this.capacity = capacity;
+		this.entries = entries;
+		this.ordered = ordered;
+	}
+
+	static DispatchQueue fifo(int capacity){
+		return new DispatchQueue(capacity, new ArrayDeque<>(capacity), null);
+	}
+
+	static DispatchQueue ordered(int capacity, Comparator<? super Runnable> order){
+		Comparator<Entry> byOrder = (first, second) -> order.compare(first.job, second.job);
+		OrderedEntries entries = new OrderedEntries(byOrder.thenComparingLong(entry -> entry.sequence));
+		return new DispatchQueue(capacity, entries, entries);
+	}
+
+	/**
+	 * Queues the job. When the queue is full, an ordered queue drops its last job for a job ranked before it.
+	 * 
+	 * @return false if the job is already queued or the queue is full (with no job ranked after it, if ordered).
+	 */
+	synchronized boolean offer(Runnable job){
+		if (queued.contains(job)){
+			return false;
+		}
+		Entry entry = new Entry(job, System.nanoTime(), sequence);
+		if (entries.size() >= capacity){
+			if (ordered == null || ordered.comparator.compare(entry, ordered.last()) >= 0){
+				return false;
+			}
+			queued.remove(ordered.pollLast().job);
+		}
+		sequence++;
+		queued.add(job);
+		entries.add(entry);
+		return true;
+	}
+
+	/**
+	 * Puts back an entry taken from this queue (e.g. deferred by the rate limit), even beyond the capacity, 
+	 * keeping its place in the order and when its job was obtained. Ignored if the job was queued again meanwhile.
+	 */
+	synchronized void requeue(Entry entry){
+		if (queued.add(entry.job)){
+			entries.add(entry);
+		}
+	}
+
+	/**
+	 * Queues the new jobs produced, until the queue is full (or the producer exhausted, if ordered).
+	 * 
+	 * @return amount of jobs queued.
+	 */
+	int fill(Iterator<Runnable> produced, TaskBookkeeping bookkeeping){
+		int queuedNow = 0;
+		while (produced != null && demand() > 0 && produced.hasNext()){
+			Runnable job = produced.next();
+			if (job == null || contains(job) || !bookkeeping.isNew(job)){
+				continue;
+			}
+			if (offer(job)){
+				queuedNow++;
+			}
+		}
+		return queuedNow;
+	}
+
+	/**
+	 * @return the next entry, or null if there is none.
+	 */
+	synchronized Entry poll(){
+		Entry entry = entries.poll();
+		if (entry != null){
+			queued.remove(entry.job);
+		}
+		return entry;
+	}
+
+	synchronized boolean contains(Runnable job){
+		return queued.contains(job);
+	}
+
+	synchronized int remainingCapacity(){
+		return Math.max(0, capacity - entries.size());
+	}
+
+	/**
+	 * @return amount of jobs a {@link #fill(Iterator, TaskBookkeeping)} may take: the remaining capacity, 
+	 * or the whole capacity if ordered, as the queued jobs may be replaced by the ones ranked before them.
+	 */
+	synchronized int demand(){
+		return ordered == null ? remainingCapacity() : capacity;
+	}
+
+	synchronized boolean isEmpty(){
+		return entries.isEmpty();
+	}
+
+	/**
+	 * @return read-only view of the jobs queued or in the informed set, for the producer to exclude.
+	 */
+	Set<Runnable> excluding(Set<Runnable> inFlight){
+		return new ExcludedView(inFlight);
+	}
+
+	private synchronized List<Runnable> snapshot(){
+		return new ArrayList<>(queued);
+	}
+
+	/**
+	 * A queued job, with when it was obtained from the producer.
+	 */
+	static final class Entry{
+		private final Runnable job;
+		private final long obtainedAt;
+		private final long sequence;
+
+		private Entry(Runnable job, long obtainedAt, long sequence) {
+			this.job = job;
+			this.obtainedAt = obtainedAt;
+			this.sequence = sequence;
+		}
+
+		Runnable job(){
+			return job;
+		}
+
+		/**
+		 * @return when the job was obtained from the producer, as in {@link System#nanoTime()}.
+		 */
+		long obtainedAt(){
+			return obtainedAt;
+		}
+	}
+
+	private final class ExcludedView extends AbstractSet<Runnable> {
+		private final Set<Runnable> inFlight;
+
+		private ExcludedView(Set<Runnable> inFlight) {
+			this.inFlight = inFlight;
+		}
+
+		@Override
+		public boolean contains(Object job) {
+			return job instanceof Runnable && (DispatchQueue.this.contains((Runnable) job) || inFlight.contains(job));
+		}
+
+		@Override
+		public Iterator<Runnable> iterator() {
+			List<Runnable> jobs = snapshot();
+			jobs.addAll(inFlight);
+			return jobs.iterator();
+		}
+
+		@Override
+		public int size() {
+			synchronized (DispatchQueue.this) {
+				return queued.size() + inFlight.size();
+			}
+		}
+	}
+
+	/**
+	 * Entries of an ordered queue, sorted so both the first and the last ones are taken in logarithmic time.
+	 */
+	private static final class OrderedEntries extends AbstractQueue<Entry> {
+		private final Comparator<Entry> comparator;
+		private final TreeSet<Entry> sorted;
+
+		private OrderedEntries(Comparator<Entry> comparator) {
+			this.comparator = comparator;
+			this.sorted = new TreeSet<>(comparator);
+		}
+
+		@Override
+		public boolean offer(Entry entry) {
+			return sorted.add(entry);
+		}
+
+		@Override
+		public Entry poll() {
+			return sorted.pollFirst();
+		}
+
+		@Override
+		public Entry peek() {
+			return sorted.isEmpty() ? null : sorted.first();
+		}
+
+		private Entry last(){
+			return sorted.last();
+		}
+
+		private Entry pollLast(){
+			return sorted.pollLast();
+		}
+
+		@Override
+		public Iterator<Entry> iterator() {
+			return sorted.iterator();
+		}
+
+		@Override
+		public int size() {
+			return sorted.size();
+		}
+	}
+}
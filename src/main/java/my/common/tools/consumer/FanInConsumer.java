@@ -0,0 +1,356 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import my.common.tools.producer.TaskProducer;
+
+/**
+ * Consumer pulling several producers with a single distributor and a single pool of consumers.
+ * <p>
+ * The free capacity is split among the producers by weighted fair queueing: each forwarded task advances
+ * the virtual time of its producer by the inverse of its weight, and the next task always comes from the
+ * producer with the lowest virtual time still having tasks. A producer returning few tasks leaves its share
+ * to the others, and a producer becoming busy again does not get back the share it did not use.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public class FanInConsumer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FanInConsumer.class);
+
+	private final List<Source> sources;
+	private final ExecutorService consumerService;
+	private final ScheduledExecutorService distributor;
+	private final long interval;
+	private final TimeUnit timeUnit;
+	private final int batchAmount;
+	private final ConsumerMetrics metrics;
+
+	private double virtualTime;
+
+	private FanInConsumer(FanInConsumerBuilder builder) {
+		List<TaskLifecycleListener> listeners = new ArrayList<>(builder.listeners);
+		listeners.add(0, builder.metrics);
+		TaskLifecycleListener listener = CompositeTaskLifecycleListener.of(listeners);
+		this.sources = new ArrayList<>();
+		for (SourceDefinition definition : builder.definitions){
+			TaskBookkeeping bookkeeping = new TaskBookkeeping(builder.completedTaskMemory.get(), listener, () -> {});
+			this.sources.add(new Source(definition, bookkeeping));
+		}
+		this.consumerService = builder.consumerService;
+		this.distributor = builder.distributor;
+		this.interval = builder.interval;
+		this.timeUnit = builder.timeUnit;
+		this.batchAmount = builder.batchAmount;
+		this.metrics = builder.metrics;
+	}
+
+	/**
+	 * Begins creation of new FanInConsumer, using builder.
+	 *
+	 * @return builder class for {@link FanInConsumer}
+	 */
+	public static FanInConsumerBuilder of(){
+		return new FanInConsumerBuilder();
+	}
+
+	public static final class FanInConsumerBuilder{
+		private final List<SourceDefinition> definitions = new ArrayList<>();
+		private ExecutorService consumerService;
+		private ScheduledExecutorService distributor;
+		private long interval;
+		private TimeUnit timeUnit;
+		private int batchAmount;
+		private Supplier<CompletedTaskMemory> completedTaskMemory = CompletedTaskMemory::untilNoLongerReturned;
+		private ConsumerMetrics metrics = ConsumerMetrics.NONE;
+		private final List<TaskLifecycleListener> listeners = new ArrayList<>();
+
+		/**
+		 * Registers a producer without limit of tasks waiting/executing.
+		 *
+		 * @see #producer(TaskProducer, int, int)
+		 */
+		public FanInConsumerBuilder producer(TaskProducer producer, int weight){
+			return producer(producer, weight, 0);
+		}
+
+		/**
+		 * Registers a producer.
+		 *
+		 * @param producer the producer to be pulled.
+		 * @param weight share of the free capacity given to this producer, relative to the weights of the others.
+		 * @param maxInFlight maximum amount of tasks of this producer waiting/executing, zero or less means no limit.
+		 * @return this builder.
+		 */
+		public FanInConsumerBuilder producer(TaskProducer producer, int weight, int maxInFlight){
+			if (weight <= 0){
+				throw new IllegalArgumentException("The weight must be positive. Informed: " + weight);
+			}
+			this.definitions.add(new SourceDefinition(Objects.requireNonNull(producer, "producer"), weight, maxInFlight));
+			return this;
+		}
+
+		public FanInConsumerBuilder consumerService(ExecutorService consumerService){
+			this.consumerService = consumerService;
+			return this;
+		}
+
+		/**
+		 * Executes each task in its own virtual thread (Java 21 or later) instead of a pool of platform threads,
+		 * replacing the {@link #consumerService(ExecutorService)}.
+		 * On older Java versions, a fixed pool of {@code maxConcurrency} platform threads is used.
+		 */
+		public FanInConsumerBuilder virtualThreads(int maxConcurrency){
+			this.consumerService = VirtualThreads.executor(maxConcurrency);
+			return this;
+		}
+
+		public FanInConsumerBuilder timeInterval(long interval, TimeUnit timeUnit){
+			this.interval = interval;
+			this.timeUnit = timeUnit;
+			return this;
+		}
+
+		/**
+		 * Maximum amount of tasks, of all the producers, waiting/executing in the consumers. Zero or less means no limit.
+		 */
+		public FanInConsumerBuilder batchAmount(int batchAmount){
+			this.batchAmount = batchAmount;
+			return this;
+		}
+
+		/**
+		 * Defines how long the concluded tasks are remembered, each producer having its own memory.
+		 * By default, they are remembered while their producer keeps returning them.
+		 */
+		public FanInConsumerBuilder completedTaskMemory(Supplier<CompletedTaskMemory> completedTaskMemory){
+			this.completedTaskMemory = Objects.requireNonNull(completedTaskMemory, "completedTaskMemory");
+			return this;
+		}
+
+		/**
+		 * Defines where the measures of the tasks life cycle and of the pulling cycles are sent.
+		 * By default, nothing is measured.
+		 */
+		public FanInConsumerBuilder metrics(ConsumerMetrics metrics){
+			this.metrics = Objects.requireNonNull(metrics, "metrics");
+			return this;
+		}
+
+		/**
+		 * Registers a listener of the tasks life cycle, e.g. {@link TaskLifecycleListener#logging()}.
+		 * By default, nothing is reported.
+		 */
+		public FanInConsumerBuilder listener(TaskLifecycleListener listener){
+			this.listeners.add(Objects.requireNonNull(listener, "listener"));
+			return this;
+		}
+
+		public final FanInConsumer create(){
+			if (definitions.isEmpty()){
+				throw new IllegalArgumentException("At least one producer must be registered.");
+			}
+			ScheduledThreadPoolExecutor distributor = new ScheduledThreadPoolExecutor(1, Executors.defaultThreadFactory());
+			distributor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+			this.distributor = distributor;
+			return new FanInConsumer(this);
+		}
+	}
+
+	/**
+	 * Starts the pulling in the Producers.
+	 *
+	 * @return The instance of {@link FanInConsumer} being defined, for further control.
+	 */
+	public FanInConsumer distributeTheTasks(){
+		LOGGER.info("Starting task distributor for {} producers... ", sources.size());
+		if (distributor.isShutdown()){
+			throw new IllegalStateException("This consumer already disconnected. You will need to create a new one.");
+		}
+		distributor.scheduleWithFixedDelay(this::process, 0, interval, timeUnit);
+		LOGGER.info("Started.");
+		return this;
+	}
+
+	public FanInConsumer finishesWaitingAtTheMost(long timeout, TimeUnit timeUnit) throws InterruptedException{
+		LOGGER.info("Requesting stop (waiting tasks conclusion to finish... )");
+		LOGGER.info("- Stopping the distributor... ");
+		distributor.shutdown();
+		distributor.awaitTermination(timeout, timeUnit);
+		LOGGER.info("- Stopping the consumers... ");
+		consumerService.shutdown();
+		consumerService.awaitTermination(timeout, timeUnit);
+		LOGGER.info("Stoped.");
+		return this;
+	}
+
+	/**
+	 * Executes one pulling cycle, it must only be called by the distributor.
+	 */
+	void process(){
+		long cycleStart = System.nanoTime();
+		int inFlight = 0;
+		for (Source source : sources){
+			inFlight += source.bookkeeping.inFlight();
+		}
+		int freeCapacity = batchAmount > 0 ? Math.max(0, batchAmount - inFlight) : -1;
+		if (freeCapacity == 0){
+			LOGGER.debug("No free capacity, the Producers will not be pulled in this cycle.");
+			return;
+		}
+
+		long producerNanos = 0;
+		for (Source source : sources){
+			long pullStart = System.nanoTime();
+			source.pull(freeCapacity);
+			producerNanos += System.nanoTime() - pullStart;
+		}
+
+		int accepted = 0;
+		Source next;
+		while ((freeCapacity < 0 || accepted < freeCapacity) && (next = lowestVirtualTime()) != null){
+			long pullStart = System.nanoTime();
+			Runnable job = next.nextNewJob();
+			producerNanos += System.nanoTime() - pullStart;
+			if (job == null){
+				continue;
+			}
+			TaskWrapper task = next.bookkeeping.wrap(job);
+			if (!next.bookkeeping.recordsForwardedTask(task)){
+				continue;
+			}
+			virtualTime = next.virtualTime;
+			next.virtualTime += 1.0 / next.weight;
+			execute(task);
+			accepted++;
+		}
+
+		for (Source source : sources){
+			source.cycleFinished(virtualTime);
+		}
+		LOGGER.debug("Distributed {} tasks.", accepted);
+		metrics.pollFinished(System.nanoTime() - cycleStart, producerNanos, accepted);
+	}
+
+	/**
+	 * Concludes as failed the task rejected by the consumers (e.g. saturated or shut down), 
+	 * so it does not stay forwarded and is retried as any failed task.
+	 */
+	private void execute(TaskWrapper task){
+		try {
+			consumerService.execute(task);
+		} catch (RejectedExecutionException e) {
+			LOGGER.error("Consumers rejected the task " + task + ", it is concluded as failed.", e);
+			task.finished(true);
+		}
+	}
+
+	private Source lowestVirtualTime(){
+		Source lowest = null;
+		for (Source source : sources){
+			if (source.hasRoom() && (lowest == null || source.virtualTime < lowest.virtualTime)){
+				lowest = source;
+			}
+		}
+		return lowest;
+	}
+
+	private static final class SourceDefinition{
+		private final TaskProducer producer;
+		private final int weight;
+		private final int maxInFlight;
+
+		private SourceDefinition(TaskProducer producer, int weight, int maxInFlight) {
+			this.producer = producer;
+			this.weight = weight;
+			this.maxInFlight = maxInFlight;
+		}
+	}
+
+	/**
+	 * A registered producer, with its own bookkeeping and the state of the current cycle.
+	 * Only accessed by the distributor.
+	 */
+	private static final class Source{
+		private final TaskProducer producer;
+		private final int weight;
+		private final int maxInFlight;
+		private final TaskBookkeeping bookkeeping;
+
+		private double virtualTime;
+		private Iterator<Runnable> pending;
+		private boolean pulled;
+
+		private Source(SourceDefinition definition, TaskBookkeeping bookkeeping) {
+			this.producer = definition.producer;
+			this.weight = definition.weight;
+			this.maxInFlight = definition.maxInFlight;
+			this.bookkeeping = bookkeeping;
+		}
+
+		private void pull(int freeCapacity){
+			int demand = freeCapacity < 0 ? Integer.MAX_VALUE : freeCapacity;
+			if (maxInFlight > 0){
+				demand = Math.min(demand, maxInFlight - bookkeeping.inFlight());
+			}
+			pulled = false;
+			if (demand <= 0){
+				return;
+			}
+			try {
+				pending = producer.nextTasks(demand, bookkeeping.excludedJobs());
+				pulled = true;
+			} catch (RuntimeException e) {
+				LOGGER.error("Error pulling the producer " + producer + ", it is skipped in this cycle.", e);
+			}
+		}
+
+		private boolean hasRoom(){
+			return pending != null && (maxInFlight <= 0 || bookkeeping.inFlight() < maxInFlight);
+		}
+
+		/**
+		 * @return the next job not yet executing nor completed, or null (closing this source for the cycle) if there is none.
+		 */
+		private Runnable nextNewJob(){
+			try {
+				while (pending.hasNext()){
+					Runnable job = pending.next();
+					if (job != null && bookkeeping.isNew(job)){
+						return job;
+					}
+				}
+			} catch (RuntimeException e) {
+				LOGGER.error("Error iterating the tasks of the producer " + producer + ".", e);
+			}
+			pending = null;
+			return null;
+		}
+
+		/**
+		 * Ends the cycle, not letting a source that had nothing to do keep an old virtual time as credit.
+		 */
+		private void cycleFinished(double systemVirtualTime){
+			if (pulled){
+				bookkeeping.cycleFinished(pending == null);
+			}
+			if (pending == null && virtualTime < systemVirtualTime){
+				virtualTime = systemVirtualTime;
+			}
+			pending = null;
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package my.common.tools.consumer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ClaimStore} kept in a shared directory: a file per node, whose modification time is its last heartbeat, 
+ * and a file per claimed task (named by the SHA-256 of its key) holding the id of the node that claimed it.
+ * <p>
+ * A claim file is read and written under an exclusive lock of the file, so the nodes of distinct processes 
+ * never claim the same task at once. Releasing a claim empties its file instead of deleting it, so a node 
+ * waiting for the lock never writes to a deleted file. The locks of a process are also serialized in it, 
+ * since a file lock is held by the whole process.
+ * <p>
+ * Every claim file is opened only under a shared lock of a guard file, and every {@value #SWEEP_PERIOD} releases 
+ * a node sweeps the claims under an exclusive lock of it, deleting the files released or claimed by nodes no longer 
+ * alive. So a sweep never deletes a file another node has just opened, and would write its claim to.
+ * The directory holds the claims of the live nodes plus at most the releases since the last sweep of each node.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class FileClaimStore implements ClaimStore {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileClaimStore.class);
+
+	private static final Object PROCESS_LOCK = new Object();
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final int SWEEP_PERIOD = 256;
+
+	private final Path nodes;
+	private final Path claims;
+	private final Path guard;
+	private final long leaseMillis;
+	private final AtomicInteger releases = new AtomicInteger();
+
+	FileClaimStore(Path directory, long leaseMillis) {
+		this.nodes = directory.resolve("nodes");
+		this.claims = directory.resolve("claims");
+		this.guard = directory.resolve("claims.lock");
+		this.leaseMillis = leaseMillis;
+		try {
+			Files.createDirectories(nodes);
+			Files.createDirectories(claims);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error creating the claim store in " + directory, e);
+		}
+	}
+
+	@Override
+	public void heartbeat(String nodeId) {
+		Path node = nodes.resolve(fileName(nodeId));
+		try {
+			if (Files.notExists(node)){
+				Files.write(node, nodeId.getBytes(StandardCharsets.UTF_8));
+			}
+			Files.setLastModifiedTime(node, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error renewing the lease of the node " + nodeId, e);
+		}
+	}
+
+	@Override
+	public long lease(TimeUnit timeUnit) {
+		return timeUnit.convert(leaseMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Set<String> liveNodes() {
+		long expired = System.currentTimeMillis() - leaseMillis;
+		Set<String> live = new HashSet<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(nodes)) {
+			for (Path node : files){
+				try {
+					if (Files.getLastModifiedTime(node).toMillis() > expired){
+						live.add(new String(Files.readAllBytes(node), StandardCharsets.UTF_8));
+					}
+				} catch (IOException e) {
+					LOGGER.debug("Node file {} removed while listed.", node);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error listing the nodes in " + nodes, e);
+		}
+		return live;
+	}
+
+	@Override
+	public void leave(String nodeId) {
+		try {
+			Files.deleteIfExists(nodes.resolve(fileName(nodeId)));
+		} catch (IOException e) {
+			LOGGER.warn("Error removing the node " + nodeId + ", its claims are free when its lease expires.", e);
+		}
+	}
+
+	@Override
+	public boolean tryClaim(String nodeId, String taskKey) {
+		Path claim = claims.resolve(fileName(taskKey));
+		synchronized (PROCESS_LOCK) {
+			try (FileChannel guarded = openGuard()) {
+				guarded.lock(0, Long.MAX_VALUE, true);
+				try (FileChannel channel = FileChannel.open(claim, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					channel.lock();
+					String owner = read(channel);
+					if (owner.equals(nodeId)){
+						return true;
+					}
+					if (!owner.isEmpty() && liveNodes().contains(owner)){
+						return false;
+					}
+					write(channel, nodeId);
+					return true;
+				}
+			} catch (IOException e) {
+				LOGGER.error("Error claiming the task " + taskKey + ", it is not forwarded.", e);
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public void release(String nodeId, String taskKey) {
+		Path claim = claims.resolve(fileName(taskKey));
+		synchronized (PROCESS_LOCK) {
+			try (FileChannel guarded = openGuard()) {
+				guarded.lock(0, Long.MAX_VALUE, true);
+				try (FileChannel channel = FileChannel.open(claim, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					channel.lock();
+					if (read(channel).equals(nodeId)){
+						write(channel, "");
+					}
+				}
+			} catch (NoSuchFileException e) {
+				LOGGER.debug("Claim of the task {} already swept.", taskKey);
+			} catch (IOException e) {
+				LOGGER.warn("Error releasing the task " + taskKey + ", it is free when the lease of " + nodeId + " expires.", e);
+			}
+		}
+		if (releases.incrementAndGet() % SWEEP_PERIOD == 0){
+			sweep();
+		}
+	}
+
+	/**
+	 * Deletes the claim files released or held by nodes no longer alive, while no node is claiming.
+	 */
+	void sweep() {
+		synchronized (PROCESS_LOCK) {
+			try (FileChannel guarded = openGuard();
+				 DirectoryStream<Path> files = Files.newDirectoryStream(claims)) {
+				guarded.lock();
+				Set<String> live = liveNodes();
+				for (Path claim : files){
+					String owner = new String(Files.readAllBytes(claim), StandardCharsets.UTF_8);
+					if (owner.isEmpty() || !live.contains(owner)){
+						Files.deleteIfExists(claim);
+					}
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Error sweeping the claims in " + claims + ", retrying in the next sweep.", e);
+			}
+		}
+	}
+
+	/**
+	 * @return channel of the guard file, whose locks are released when it closes (as the ones of the claim files).
+	 */
+	private FileChannel openGuard() throws IOException{
+		return FileChannel.open(guard, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	private static String read(FileChannel channel) throws IOException{
+		ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+		channel.read(content, 0);
+		return new String(content.array(), StandardCharsets.UTF_8);
+	}
+
+	private static void write(FileChannel channel, String owner) throws IOException{
+		channel.truncate(0);
+		channel.write(ByteBuffer.wrap(owner.getBytes(StandardCharsets.UTF_8)), 0);
+		channel.force(false);
+	}
+
+	/**
+	 * @return a file name for any key, hex of its SHA-256.
+	 */
+	private static String fileName(String key){
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is required in every Java platform.", e);
+		}
+		char[] name = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++){
+			name[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+			name[2 * i + 1] = HEX[digest[i] & 0xF];
+		}
+		return new String(name);
+	}
+}
@@ -0,0 +1,91 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency gradient {@link ConcurrencyLimit}.
+ * <p>
+ * The samples are grouped in rounds of about limit tasks. At the end of a round, its average latency is compared 
+ * to a slow moving average of the previous ones: while they match the limit grows by its square root, and when 
+ * the round is slower the limit shrinks in proportion (at most by half). The long term average is pulled down 
+ * quickly when the latency drops, so an old slow period does not hide a new one. A round in which the limit 
+ * was not being used does not grow it.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class GradientLimit implements ConcurrencyLimit {
+
+	private static final int MIN_ROUND = 10;
+	private static final double LONG_TERM_WEIGHT = 0.05;
+	private static final double SMOOTHING = 0.2;
+
+	private final int min;
+	private final int max;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private double estimate;
+	private double longTermNanos;
+	private long roundNanos;
+	private int roundSamples;
+	private int roundMaxInFlight;
+	private boolean roundFailed;
+	private volatile int limit;
+
+	GradientLimit(int min, int max) {
+		this.min = min;
+		this.max = max;
+		this.estimate = min;
+		this.limit = min;
+	}
+
+	@Override
+	public int limit() {
+		return limit;
+	}
+
+	@Override
+	public void taskForwarded(TaskWrapper task) {
+		inFlight.incrementAndGet();
+	}
+
+	@Override
+	public void taskFinished(TaskWrapper task, TaskState finalState) {
+		sample(task.finishedAt() - task.startedAt(), finalState != TaskState.COMPLETED, inFlight.getAndDecrement());
+	}
+
+	/**
+	 * @param inFlight tasks waiting/executing when the sampled one finished, itself included.
+	 */
+	synchronized void sample(long latencyNanos, boolean failed, int inFlight){
+		roundNanos += latencyNanos;
+		roundSamples++;
+		roundMaxInFlight = Math.max(roundMaxInFlight, inFlight);
+		roundFailed |= failed;
+		if (roundSamples < Math.max(MIN_ROUND, limit)){
+			return;
+		}
+		double shortTermNanos = Math.max(1d, (double) roundNanos / roundSamples);
+		if (longTermNanos == 0){
+			longTermNanos = shortTermNanos;
+		} else {
+			longTermNanos = longTermNanos * (1 - LONG_TERM_WEIGHT) + shortTermNanos * LONG_TERM_WEIGHT;
+			if (longTermNanos > 2 * shortTermNanos){
+				longTermNanos = (longTermNanos + shortTermNanos) / 2;
+			}
+		}
+		double gradient = Math.max(0.5, Math.min(1d, longTermNanos / shortTermNanos));
+		if (roundFailed){
+			gradient /= 2;
+		}
+		boolean used = 2 * roundMaxInFlight >= limit;
+		double target = estimate * gradient + (used ? Math.sqrt(estimate) : 0);
+		if (used || target < estimate){
+			estimate = Math.max(min, Math.min(max, estimate * (1 - SMOOTHING) + target * SMOOTHING));
+			limit = (int) estimate;
+		}
+		roundNanos = 0;
+		roundSamples = 0;
+		roundMaxInFlight = 0;
+		roundFailed = false;
+	}
+}
@@ -0,0 +1,17 @@
+package my.common.tools.consumer;
+
+/**
+ * Task identified by a {@code long}, e.g. the id of the record it processes.
+ * <p>
+ * Used by the {@link CompletedTaskMemory#compact() compact memory}, which remembers only the ids of the 
+ * completed tasks, instead of the tasks themselves. Two tasks with the same id are considered the same task.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface IdentifiedTask extends Runnable {
+
+	/**
+	 * @return the id of this task, stable across the cycles.
+	 */
+	long taskId();
+}
@@ -0,0 +1,124 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+import my.common.tools.producer.IncrementalTaskProducer;
+import my.common.tools.producer.TaskChanges;
+import my.common.tools.producer.TaskProducer;
+
+/**
+ * Pulls an {@link IncrementalTaskProducer} for the consumer, keeping the tasks obtained until they are forwarded.
+ * <p>
+ * Each pull returns the kept tasks (the ones not accepted yet, e.g. still executing an older version, 
+ * and the failed ones) followed by the changes since the cursor, the producer being asked only for the demand 
+ * not covered by the kept tasks. So the concluded tasks need no memory: they are not returned again unless changed,
+ * and the retractions forget what is still known of them (their failures and quarantine).
+ * Listens the tasks life cycle, to stop keeping the forwarded tasks and to keep again the failed ones.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class IncrementalProducerAdapter implements TaskProducer, TaskLifecycleListener {
+
+	private final IncrementalTaskProducer producer;
+	private final Consumer<Runnable> retracted;
+	private final Set<Runnable> pending = new LinkedHashSet<>();
+	private final Set<Runnable> retractedInFlight = ConcurrentHashMap.newKeySet();
+	private final Queue<Runnable> failed = new ConcurrentLinkedQueue<>();
+
+	private long cursor;
+
+	/**
+	 * @param fromCursor cursor informed in the first pull.
+	 * @param retracted forgets a job retracted by the producer.
+	 */
+	IncrementalProducerAdapter(IncrementalTaskProducer producer, long fromCursor, Consumer<Runnable> retracted) {
+		this.producer = producer;
+		this.cursor = fromCursor;
+		this.retracted = retracted;
+	}
+
+	@Override
+	public Iterator<Runnable> nextTasks() {
+		return nextTasks(Integer.MAX_VALUE, Collections.emptySet());
+	}
+
+	/**
+	 * Pulls the changes, it must only be called by a single thread.
+	 */
+	@Override
+	public Iterator<Runnable> nextTasks(int demand, Set<Runnable> inFlight) {
+		Runnable job;
+		while ((job = failed.poll()) != null){
+			if (retractedInFlight.remove(job)){
+				retracted.accept(job);
+			} else {
+				keep(job);
+			}
+		}
+		int kept = kept();
+		if (kept < demand){
+			TaskChanges changes = producer.changesSince(cursor, demand - kept);
+			for (Runnable retraction : changes.retracted()){
+				synchronized (pending) {
+					pending.remove(retraction);
+				}
+				if (inFlight.contains(retraction)){
+					retractedInFlight.add(retraction);
+				}
+				retracted.accept(retraction);
+			}
+			synchronized (pending) {
+				pending.addAll(changes.upserted());
+			}
+			cursor = changes.cursor();
+		}
+		synchronized (pending) {
+			return new ArrayList<>(pending).iterator();
+		}
+	}
+
+	@Override
+	public void taskForwarded(TaskWrapper task) {
+		synchronized (pending) {
+			pending.remove(task.originalJob());
+		}
+	}
+
+	@Override
+	public void taskDiscarded(Runnable job, TaskState state) {
+		if (state == TaskState.QUARANTINED){
+			synchronized (pending) {
+				pending.remove(job);
+			}
+		}
+	}
+
+	@Override
+	public void taskFinished(TaskWrapper task, TaskState finalState) {
+		if (finalState == TaskState.FAILED){
+			failed.add(task.originalJob());
+		} else if (!retractedInFlight.isEmpty()){
+			retractedInFlight.remove(task.originalJob());
+		}
+	}
+
+	private void keep(Runnable job){
+		synchronized (pending) {
+			pending.add(job);
+		}
+	}
+
+	private int kept(){
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+}
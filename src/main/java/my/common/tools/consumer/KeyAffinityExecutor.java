@@ -0,0 +1,171 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor running the tasks with equal keys one after another, and the tasks with distinct keys in parallel.
+ * <p>
+ * Each key being executed has a lane, holding the tasks waiting for the one executing. The lane is drained by
+ * the worker that started it, and removed as soon as it is empty, so idle keys hold no memory.
+ * The lanes are only changed inside {@link ConcurrentHashMap#compute}, locking just the key, never all of them.
+ * The tasks waiting in a lane were already forwarded, so they still occupy their slots of the batch amount.
+ * <p>
+ * A lane executing an {@link AsyncTask} stays busy until its stage completes, without holding the worker: 
+ * the rest of the lane is drained by a worker again once the stage completes.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class KeyAffinityExecutor extends AbstractExecutorService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(KeyAffinityExecutor.class);
+
+	private final ExecutorService delegate;
+	private final Function<? super Runnable, ?> keyOf;
+	private final ConcurrentHashMap<Object, Lane> lanes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param keyOf gives the key of an original job, or null if it may execute in parallel with any other.
+	 */
+	KeyAffinityExecutor(ExecutorService delegate, Function<? super Runnable, ?> keyOf) {
+		this.delegate = delegate;
+		this.keyOf = keyOf;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		Object key = keyOf.apply(command instanceof TaskWrapper ? ((TaskWrapper) command).originalJob() : command);
+		if (key == null){
+			delegate.execute(command);
+			return;
+		}
+		if (delegate.isShutdown()){
+			throw new RejectedExecutionException("The executor is shut down.");
+		}
+		Lane candidate = new Lane(key);
+		Lane lane = lanes.compute(key, (laneKey, existing) -> existing == null ? candidate : existing.add(command));
+		if (lane != candidate){
+			return;
+		}
+		try {
+			delegate.execute(() -> drain(lane, command));
+		} catch (RejectedExecutionException e) {
+			lanes.remove(key, lane);
+			throw e;
+		}
+	}
+
+	private void drain(Lane lane, Runnable first){
+		Runnable next = first;
+		while (next != null){
+			try {
+				next.run();
+			} catch (RuntimeException e) {
+				LOGGER.error("Error executing a task of the key " + lane.key + ", continuing with the next one.", e);
+			}
+			CompletableFuture<?> asyncConclusion = next instanceof TaskWrapper ? ((TaskWrapper) next).asyncConclusion() : null;
+			if (asyncConclusion != null && !asyncConclusion.isDone()){
+				asyncConclusion.whenComplete((result, error) -> resume(lane));
+				return;
+			}
+			next = pollNext(lane);
+		}
+	}
+
+	/**
+	 * Drains the rest of the lane after the stage of an asynchronous task completed, in a worker, or in the 
+	 * thread completing the stage if the workers no longer accept tasks (so the waiting ones are still concluded).
+	 */
+	private void resume(Lane lane){
+		Runnable next = pollNext(lane);
+		if (next == null){
+			return;
+		}
+		try {
+			delegate.execute(() -> drain(lane, next));
+		} catch (RejectedExecutionException e) {
+			drain(lane, next);
+		}
+	}
+
+	/**
+	 * @return the next task of the lane, or null (the lane being removed) if there is none.
+	 */
+	private Runnable pollNext(Lane lane){
+		lane.next = null;
+		lanes.computeIfPresent(lane.key, (key, current) -> current == lane ? current.pollNext() : current);
+		return lane.next;
+	}
+
+	/**
+	 * @return amount of keys with tasks executing.
+	 */
+	int activeLanes(){
+		return lanes.size();
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		lanes.clear();
+		return delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Tasks of a key, only changed while the key is locked by the map.
+	 */
+	private static final class Lane{
+		private final Object key;
+		private final Queue<Runnable> waiting = new ArrayDeque<>();
+		private Runnable next;
+
+		private Lane(Object key) {
+			this.key = key;
+		}
+
+		private Lane add(Runnable task){
+			waiting.add(task);
+			return this;
+		}
+
+		/**
+		 * Takes the next task into {@link #next}.
+		 * 
+		 * @return this lane, or null (removing it) if there is no next task.
+		 */
+		private Lane pollNext(){
+			next = waiting.poll();
+			return next == null ? null : this;
+		}
+	}
+}
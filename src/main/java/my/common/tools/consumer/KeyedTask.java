@@ -0,0 +1,25 @@
+package my.common.tools.consumer;
+
+/**
+ * Task touching an entity (e.g. an account) that must not be touched by another task at the same time.
+ * <p>
+ * With the key affinity enabled in the consumer, the tasks with equal keys execute one after another,
+ * in the order they were forwarded, while the tasks with distinct keys execute in parallel.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface KeyedTask extends Runnable {
+
+	/**
+	 * @return the key of the entity touched by this task (with consistent equals and hashCode), 
+	 * or null if it may execute in parallel with any other task.
+	 */
+	Object affinityKey();
+
+	/**
+	 * @return the key of the task, or null if it is not a {@link KeyedTask}.
+	 */
+	static Object keyOf(Runnable task){
+		return task instanceof KeyedTask ? ((KeyedTask) task).affinityKey() : null;
+	}
+}
@@ -0,0 +1,127 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of latencies, in nanoseconds, with log-linear buckets (as HdrHistogram):
+ * each power of two is split in 64 buckets, so any recorded value is reported with less than 1.6% of error.
+ * <p>
+ * Recording is a couple of atomic increments, without locks or allocation.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder total = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a latency, negative values are recorded as zero.
+	 */
+	public void record(long nanos){
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(indexOf(value));
+		total.increment();
+		sum.add(value);
+		if (value > max.get()){
+			max.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	/**
+	 * @return a copy of the current counts.
+	 */
+	public Snapshot snapshot(){
+		long[] copy = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++){
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		return new Snapshot(copy, count, sum.sum(), max.get());
+	}
+
+	static int indexOf(long value){
+		if (value < SUB_BUCKETS){
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+	}
+
+	static long highestValueOf(int index){
+		if (index < SUB_BUCKETS){
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long subBucket = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Immutable view of a {@link LatencyHistogram} at a given moment.
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		private Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long count(){
+			return count;
+		}
+
+		public long max(TimeUnit unit){
+			return unit.convert(max, TimeUnit.NANOSECONDS);
+		}
+
+		public double mean(TimeUnit unit){
+			return count == 0 ? 0d : (double) sum / count / unit.toNanos(1);
+		}
+
+		/**
+		 * @param percentile between 0 and 100.
+		 * @return the highest value of the bucket reaching the percentile, or zero if nothing was recorded.
+		 */
+		public long percentile(double percentile, TimeUnit unit){
+			if (count == 0){
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(count * Math.min(100d, Math.max(0d, percentile)) / 100d));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++){
+				seen += counts[i];
+				if (seen >= rank){
+					return unit.convert(Math.min(highestValueOf(i), max), TimeUnit.NANOSECONDS);
+				}
+			}
+			return unit.convert(max, TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public String toString() {
+			return "Latency [count=" + count + ", mean=" + mean(TimeUnit.MICROSECONDS) + "us"
+					+ ", p50=" + percentile(50, TimeUnit.MICROSECONDS) + "us"
+					+ ", p99=" + percentile(99, TimeUnit.MICROSECONDS) + "us"
+					+ ", p99.9=" + percentile(99.9, TimeUnit.MICROSECONDS) + "us"
+					+ ", max=" + max(TimeUnit.MICROSECONDS) + "us]";
+		}
+	}
+}
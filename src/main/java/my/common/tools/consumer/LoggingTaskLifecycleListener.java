@@ -0,0 +1,64 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs the tasks life cycle at INFO level, building the messages only when the level is enabled.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class LoggingTaskLifecycleListener implements TaskLifecycleListener {
+
+	static final LoggingTaskLifecycleListener INSTANCE = new LoggingTaskLifecycleListener();
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoggingTaskLifecycleListener.class);
+
+	private LoggingTaskLifecycleListener() {
+	}
+
+	@Override
+	public void taskObtained(Runnable job) {
+		LOGGER.info("Task OBTAINED -> {}", job);
+	}
+
+	@Override
+	public void taskDiscarded(Runnable job, TaskState state) {
+		if (state == TaskState.FORWARDED){
+			LOGGER.info("Task is DUPLICATED, discarding ... -> {}", job);
+		} else if (state == TaskState.FAILED){
+			LOGGER.info("Task recently FAILED, waiting to retry, discarding... -> {}", job);
+		} else if (state == TaskState.QUARANTINED){
+			LOGGER.info("Task is QUARANTINED, discarding... -> {}", job);
+		} else {
+			LOGGER.info("Task recently COMPLETED, discarding... -> {}", job);
+		}
+	}
+
+	@Override
+	public void taskForwarded(TaskWrapper task) {
+		LOGGER.info("Task WAITING/EXECUTING -> {}", task);
+	}
+
+	@Override
+	public void taskFinished(TaskWrapper task, TaskState finalState) {
+		if (finalState == TaskState.COMPLETED){
+			LOGGER.info("Task COMPLETED -> {}", task);
+		} else {
+			LOGGER.info("Task PRESENTED ERROR (it may be repeated) -> {}", task);
+		}
+	}
+
+	@Override
+	public void taskQuarantined(TaskWrapper task) {
+		LOGGER.warn("Task QUARANTINED after too many errors -> {}", task);
+	}
+
+	@Override
+	public void taskTimedOut(TaskWrapper task) {
+		LOGGER.warn("Task TIMED OUT after {} ms, interrupted -> {}", 
+					TimeUnit.NANOSECONDS.toMillis(task.finishedAt() - task.startedAt()), task);
+	}
+}
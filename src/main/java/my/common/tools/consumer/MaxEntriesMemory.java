@@ -0,0 +1,67 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Remembers at most a fixed amount of concluded tasks.
+ * <p>
+ * Approximates LRU with the "second chance" (clock) algorithm: a task returned again by the producer is 
+ * marked as referenced, and when the memory is full the head of the queue is forgotten, unless it is 
+ * referenced, in which case it loses the mark and goes back to the tail.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class MaxEntriesMemory implements CompletedTaskMemory {
+
+	private final int maxEntries;
+	private final ConcurrentHashMap<Runnable, Boolean> referenced = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Runnable> order = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	MaxEntriesMemory(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	@Override
+	public void remembered(Runnable task, Consumer<Runnable> evicted) {
+		if (referenced.put(task, Boolean.FALSE) != null){
+			return;
+		}
+		order.add(task);
+		if (size.incrementAndGet() > maxEntries){
+			evictOne(evicted);
+		}
+	}
+
+	@Override
+	public void returned(Runnable task) {
+		referenced.replace(task, Boolean.FALSE, Boolean.TRUE);
+	}
+
+	@Override
+	public void cycleFinished(Consumer<Runnable> evicted) {
+	}
+
+	private void evictOne(Consumer<Runnable> evicted){
+		Runnable task;
+		while ((task = order.poll()) != null){
+			if (referenced.replace(task, Boolean.TRUE, Boolean.FALSE)){
+				order.add(task);
+			} else if (referenced.remove(task, Boolean.FALSE)){
+				size.decrementAndGet();
+				evicted.accept(task);
+				return;
+			} else if (referenced.containsKey(task)){
+				order.add(task);
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+}
@@ -1,24 +1,31 @@
 package my.common.tools.consumer;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.BiFunction;
-import java.util.function.Consumer;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import my.common.tools.producer.IncrementalTaskProducer;
 import my.common.tools.producer.TaskProducer;
 
 /**
@@ -31,41 +38,97 @@ public class PeriodicConsumer {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(PeriodicConsumer.class);
 	
-	private final Set<TaskWrapper> forwardedTasks = Collections.synchronizedSet(new HashSet<>());
-	private final Set<TaskWrapper> completedTasks = Collections.synchronizedSet(new HashSet<>());
-	
-	private BiFunction<Set<TaskWrapper>, Function<TaskWrapper, String>, Predicate<TaskWrapper>> filterNotContained = 
-			(tasks, messageCreator) -> {
-				return (task) -> {
-					if (tasks.isEmpty() || !tasks.contains(task)){
-						return true;
-					} else {
-						LOGGER.info(messageCreator.apply(task));
-						return false;
-					}
-				};
-			};
-	
-			
-	private Predicate<TaskWrapper> notForwarded = filterNotContained.apply(forwardedTasks, tarefa -> "Task is DUPLICATED, discarding ... -> " + tarefa);
-	private Predicate<TaskWrapper> notCompleted = filterNotContained.apply(completedTasks, tarefa -> "Task recently COMPLETED, discarding... -> " + tarefa);
-	
+	private final TaskBookkeeping bookkeeping;
 	private final ExecutorService consumerService;
 	private final TaskProducer producer;
+	private final ExecutorService workers;
 	private final ScheduledExecutorService distributor;
-	private final long interval;
-	private final TimeUnit timeUnit;
-	private final int batchAmount;
+	private final ConcurrencyLimit concurrencyLimit;
+	private final AdaptiveInterval adaptiveInterval;
+	private final ConsumerMetrics metrics;
+	private final DispatchQueue dispatchQueue;
+	private final Set<Runnable> excludedJobs;
+	private final Prefetcher prefetcher;
+	private final CompletionJournal journal;
+	private final Batcher batcher;
+	private final RateGovernor rateGovernor;
+	private final TaskWatchdog watchdog;
+	private final TaskSharding sharding;
+	
+	private final AtomicBoolean wakeUpRequested = new AtomicBoolean();
+	private final AtomicBoolean drainRequested = new AtomicBoolean();
+	private volatile boolean waitingForCapacity;
+	private ScheduledFuture<?> nextCycle;
+	private ScheduledFuture<?> rateWakeUp;
 	
-	private PeriodicConsumer(ExecutorService consumidores, TaskProducer produtor, 
-							 ScheduledExecutorService distribuidor, long intervalo, TimeUnit unidadeDeTempo, int batchAmount) {
+	// Changed only by the distributor, between the pulling cycles.
+	private long interval;
+	private TimeUnit timeUnit;
+	private int batchAmount;
+	private volatile ScheduledFuture<?> cycles;
+	private volatile boolean paused;
+	private final Object drained = new Object();
+	
+	private PeriodicConsumer(ConsumerBuilder builder) {
 		
-		this.consumerService = consumidores;
-		this.producer = produtor;
-		this.distributor = distribuidor;
-		this.interval = intervalo;
-		this.timeUnit = unidadeDeTempo;
-		this.batchAmount = batchAmount;
+		if (builder.bulkHandler != null && (builder.executionTimeoutNanos >= 0 || builder.affinityKey != null)){
+			throw new IllegalArgumentException("The bulk handler executes whole batches, it can not be used with an execution timeout "
+											   + "nor with key affinity (the batches can be grouped by key with batchGroupingBy).");
+		}
+		if (builder.claimStore != null && builder.completedTaskMemory instanceof CompactTaskMemory){
+			throw new IllegalArgumentException("The sharding can not be used with the compact memory, which never forgets the completed tasks "
+											   + "and so would never release their claims.");
+		}
+		List<TaskLifecycleListener> listeners = new ArrayList<>(builder.listeners);
+		listeners.add(0, builder.metrics);
+		if (builder.concurrencyLimit != null){
+			listeners.add(0, builder.concurrencyLimit);
+		}
+		this.sharding = builder.claimStore == null ? null : new TaskSharding(builder.nodeId, builder.claimStore, builder.shardKey);
+		if (sharding != null){
+			listeners.add(sharding);
+		}
+		IncrementalProducerAdapter incremental = null;
+		if (builder.incrementalProducer != null){
+			if (builder.journalFile != null){
+				throw new IllegalArgumentException("The completion journal can not be used with an incremental producer, whose cursor already records the progress.");
+			}
+			incremental = new IncrementalProducerAdapter(builder.incrementalProducer, builder.fromCursor, this::retracted);
+			listeners.add(0, incremental);
+		}
+		this.journal = builder.journalFile == null ? null : CompletionJournal.open(builder.journalFile, builder.journalKey);
+		this.bookkeeping = new TaskBookkeeping(incremental == null ? builder.completedTaskMemory : null, CompositeTaskLifecycleListener.of(listeners), 
+												this::slotReleased, builder.retryPolicy, journal);
+		this.watchdog = builder.executionTimeoutNanos < 0 ? null : new TaskWatchdog(builder.executionTimeoutNanos, bookkeeping::recordsTimedOutTask);
+		this.metrics = builder.metrics;
+		this.consumerService = builder.affinityKey == null ? builder.consumerService 
+														   : new KeyAffinityExecutor(builder.consumerService, builder.affinityKey);
+		this.producer = incremental == null ? builder.producer : incremental;
+		this.workers = builder.consumerService;
+		this.distributor = builder.distributor;
+		this.interval = builder.interval;
+		this.timeUnit = builder.timeUnit;
+		this.batchAmount = builder.batchAmount;
+		this.concurrencyLimit = builder.concurrencyLimit;
+		this.adaptiveInterval = builder.adaptiveInterval;
+		int queueCapacity = builder.prefetchCapacity > 0 ? builder.prefetchCapacity : builder.orderingCapacity;
+		if (queueCapacity <= 0 && builder.rateLimit != null){
+			queueCapacity = Math.max(16, 2 * Math.max(builder.rateLimit.burst, builder.rateLimit.burstPerKey));
+		}
+		this.rateGovernor = builder.rateLimit == null ? null : new RateGovernor(builder.rateLimit);
+		if (queueCapacity > 0){
+			this.dispatchQueue = builder.dispatchOrder == null ? DispatchQueue.fifo(queueCapacity) 
+															   : DispatchQueue.ordered(queueCapacity, builder.dispatchOrder);
+			this.excludedJobs = dispatchQueue.excluding(bookkeeping.excludedJobs());
+		} else {
+			this.dispatchQueue = null;
+			this.excludedJobs = bookkeeping.excludedJobs();
+		}
+		this.batcher = builder.bulkHandler == null ? null 
+												   : new Batcher(builder.bulkHandler, builder.maxBatchSize, builder.lingerNanos, builder.batchGroupKey,
+																 consumerService, distributor);
+		this.prefetcher = builder.prefetchCapacity > 0 ? new Prefetcher(producer, bookkeeping, metrics, dispatchQueue, this::requestDrain)
+													   : null;
 	}
 	
 	/**
@@ -80,40 +143,333 @@ public class PeriodicConsumer {
 	protected static final class ConsumerBuilder{
 		private ExecutorService consumerService;
 		private TaskProducer producer;
+		private IncrementalTaskProducer incrementalProducer;
+		private long fromCursor;
 		private ScheduledExecutorService distributor;
 		private long interval;
 		private TimeUnit timeUnit;
 		private int batchAmount;
+		private ConcurrencyLimit concurrencyLimit;
+		private RateLimit rateLimit;
+		private AdaptiveInterval adaptiveInterval;
+		private CompletedTaskMemory completedTaskMemory = CompletedTaskMemory.untilNoLongerReturned();
+		private ConsumerMetrics metrics = ConsumerMetrics.NONE;
+		private final List<TaskLifecycleListener> listeners = new ArrayList<>();
+		private int prefetchCapacity;
+		private Comparator<? super Runnable> dispatchOrder;
+		private int orderingCapacity;
+		private RetryPolicy retryPolicy;
+		private long executionTimeoutNanos = -1;
+		private String nodeId;
+		private ClaimStore claimStore;
+		private Function<? super Runnable, String> shardKey;
+		private Function<? super Runnable, ?> affinityKey;
+		private Path journalFile;
+		private BulkHandler bulkHandler;
+		private int maxBatchSize;
+		private long lingerNanos;
+		private Function<? super Runnable, ?> batchGroupKey;
+		private Function<? super Runnable, String> journalKey;
 		
 		public ConsumerBuilder producer(TaskProducer producer){
 			this.producer = producer;
 			return this;
 		}
+		
+		/**
+		 * Pulls only the changes of the pending tasks since the last pull, replacing the {@link #producer(TaskProducer)}.
+		 * The consumer keeps the tasks not forwarded yet and forwards again the failed ones (as defined by the 
+		 * {@link #retryPolicy(RetryPolicy) retry policy}), so the concluded tasks are not remembered: 
+		 * the {@link #completedTaskMemory(CompletedTaskMemory) memory} is not used.
+		 * 
+		 * @param producer the producer to be pulled.
+		 * @param fromCursor cursor informed in the first pull (e.g. the last one processed before a restart).
+		 * @return this builder.
+		 */
+		public ConsumerBuilder producer(IncrementalTaskProducer producer, long fromCursor){
+			this.incrementalProducer = Objects.requireNonNull(producer, "producer");
+			this.fromCursor = fromCursor;
+			return this;
+		}
 
 		public ConsumerBuilder consumerService(ExecutorService consumerService){
 			this.consumerService = consumerService;
 			return this;
 		}
 
+		/**
+		 * Executes each task in its own virtual thread (Java 21 or later) instead of a pool of platform threads, 
+		 * replacing the {@link #consumerService(ExecutorService)}. A semaphore limits the tasks executing at the same time,
+		 * so the limit can be much higher than a pool size for I/O bound tasks. 
+		 * On older Java versions, a fixed pool of {@code maxConcurrency} platform threads is used.
+		 * 
+		 * @param maxConcurrency maximum amount of tasks executing at the same time.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder virtualThreads(int maxConcurrency){
+			this.consumerService = VirtualThreads.executor(maxConcurrency);
+			return this;
+		}
+
 		public ConsumerBuilder timeInterval(long interval, TimeUnit timeUnit){
 			this.interval = interval;
 			this.timeUnit = timeUnit;
 			return this;
 		}
 		
+		/**
+		 * Replaces the fixed interval by an adaptive one: the delay between the pulling cycles goes down
+		 * to {@code min} while the producer fills the free capacity, and up to {@code max} while it returns nothing.
+		 * When the capacity is exhausted, the producer is pulled again as soon as a task frees its slot.
+		 * 
+		 * @param min shortest delay between two cycles.
+		 * @param max longest delay between two cycles.
+		 * @param timeUnit unit of both delays.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder adaptiveTimeInterval(long min, long max, TimeUnit timeUnit){
+			this.adaptiveInterval = AdaptiveInterval.between(min, max, timeUnit);
+			return this;
+		}
+		
 		public ConsumerBuilder batchAmount(int batchAmount){
 			this.batchAmount = batchAmount;
 			return this;
 		}
 		
+		/**
+		 * Replaces the fixed {@link #batchAmount(int)} by a limit adjusted from the execution latency and errors of the tasks.
+		 * 
+		 * @param concurrencyLimit the limit, e.g. {@link ConcurrencyLimit#gradient(int, int)}. 
+		 * Must not be shared by other consumers, as it counts their tasks.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder adaptiveConcurrency(ConcurrencyLimit concurrencyLimit){
+			this.concurrencyLimit = Objects.requireNonNull(concurrencyLimit, "concurrencyLimit");
+			return this;
+		}
+		
+		/**
+		 * Limits the tasks forwarded per second, globally and/or per key. The tasks beyond the limit wait in the
+		 * dispatch queue (of the {@link #dispatchOrder(Comparator, int)} or of the {@link #prefetch(int)}, or else 
+		 * a FIFO one of twice the burst), and are forwarded when the tokens they need are refilled, 
+		 * without holding the distributor meanwhile.
+		 * 
+		 * @param rateLimit the limit, e.g. {@link RateLimit#perSecond(double, int)}.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder rateLimit(RateLimit rateLimit){
+			this.rateLimit = Objects.requireNonNull(rateLimit, "rateLimit");
+			return this;
+		}
+		
+		/**
+		 * Fetches the next tasks in a separated thread while the current ones execute, keeping up to
+		 * {@code stagingCapacity} of them ready to be forwarded as soon as a slot frees up.
+		 * Useful when the producer is slow, so the consumers do not sit idle while it is pulled.
+		 * 
+		 * @param stagingCapacity maximum amount of fetched tasks waiting for capacity.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder prefetch(int stagingCapacity){
+			if (stagingCapacity <= 0){
+				throw new IllegalArgumentException("The staging capacity must be positive. Informed: " + stagingCapacity);
+			}
+			this.prefetchCapacity = stagingCapacity;
+			return this;
+		}
+		
+		/**
+		 * Keeps the tasks obtained in a queue of up to {@code queueCapacity} tasks, forwarding them in the informed order
+		 * (e.g. {@link DispatchOrder#byPriority()}) as the capacity frees up, instead of in the order they are produced.
+		 * The queue is filled even when there is no free capacity, and when it is full a task ranked before the last queued one 
+		 * takes its place (the last one being obtained again later), so the urgent tasks do not wait behind the others.
+		 * When {@link #prefetch(int) prefetching}, the staging buffer is the ordered queue, with the staging capacity.
+		 * 
+		 * @param order order in which the queued tasks are forwarded, the equal ones in the order they were obtained.
+		 * @param queueCapacity maximum amount of tasks waiting in the queue.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder dispatchOrder(Comparator<? super Runnable> order, int queueCapacity){
+			if (queueCapacity <= 0){
+				throw new IllegalArgumentException("The queue capacity must be positive. Informed: " + queueCapacity);
+			}
+			this.dispatchOrder = Objects.requireNonNull(order, "order");
+			this.orderingCapacity = queueCapacity;
+			return this;
+		}
+		
+		/**
+		 * Defines how long the concluded tasks are remembered (and not executed again when returned by the producer).
+		 * By default, they are remembered while the producer keeps returning them.
+		 * 
+		 * @param completedTaskMemory the memory of concluded tasks.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder completedTaskMemory(CompletedTaskMemory completedTaskMemory){
+			this.completedTaskMemory = Objects.requireNonNull(completedTaskMemory, "completedTaskMemory");
+			return this;
+		}
+		
+		/**
+		 * Executes the tasks with equal {@link KeyedTask#affinityKey() affinity keys} one after another, 
+		 * and the ones with distinct keys in parallel. By default, any distinct tasks may execute in parallel.
+		 * 
+		 * @return this builder.
+		 */
+		public ConsumerBuilder keyAffinity(){
+			return keyAffinity(KeyedTask::keyOf);
+		}
+		
+		/**
+		 * Executes the tasks with equal keys one after another, and the ones with distinct keys in parallel.
+		 * The tasks waiting for another one with the same key still count in the {@link #batchAmount(int)}.
+		 * 
+		 * @param affinityKey gives the key of a task, or null if it may execute in parallel with any other.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder keyAffinity(Function<? super Runnable, ?> affinityKey){
+			this.affinityKey = Objects.requireNonNull(affinityKey, "affinityKey");
+			return this;
+		}
+		
+		/**
+		 * Delays the next attempt of the failed tasks (still returned by the producer) as defined by the policy, 
+		 * quarantining the ones that fail too many times. By default, a failed task is forwarded again in the next cycle.
+		 * The failures of a task are counted while the {@link #completedTaskMemory(CompletedTaskMemory) memory} remembers it.
+		 * 
+		 * @param retryPolicy the policy, e.g. {@link RetryPolicy#exponentialBackoff(long, long, TimeUnit, int)}.
+		 * @return this builder.
+		 * @see PeriodicConsumer#quarantined()
+		 */
+		public ConsumerBuilder retryPolicy(RetryPolicy retryPolicy){
+			this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy");
+			return this;
+		}
+		
+		/**
+		 * Interrupts the tasks executing longer than the timeout, concluding them as failed (so they count in the 
+		 * {@link #retryPolicy(RetryPolicy) retry policy}) and releasing their slots. A task implementing {@link TimedTask} 
+		 * defines its own timeout. By default, a task may execute for any time. 
+		 * Can not be used with the {@link #bulkHandler(BulkHandler, int, long, TimeUnit)}.
+		 * 
+		 * @param timeout longest time a task may execute, zero for only the timeouts of the {@link TimedTask}s.
+		 * @param timeUnit unit of the timeout.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder executionTimeout(long timeout, TimeUnit timeUnit){
+			if (timeout < 0){
+				throw new IllegalArgumentException("The timeout can not be negative. Informed: " + timeout);
+			}
+			this.executionTimeoutNanos = timeUnit.toNanos(timeout);
+			return this;
+		}
+		
+		/**
+		 * Groups the tasks forwarded in batches, each one executed by a single call to the handler, 
+		 * instead of running each task. Useful when the tasks are small writes, cheaper as a bulk statement.
+		 * The tasks in a batch count in the {@link #batchAmount(int)}, and each one is concluded on its own.
+		 * Can not be used with the {@link #executionTimeout(long, TimeUnit)} nor with the {@link #keyAffinity(Function)}, 
+		 * which apply to single tasks; the tasks with equal keys can still be batched together by {@link #batchGroupingBy(Function)}.
+		 * 
+		 * @param bulkHandler executes the batches.
+		 * @param maxBatchSize amount of tasks that sends the batch right away.
+		 * @param linger longest time a batch waits for more tasks, since its first one.
+		 * @param timeUnit unit of the linger time.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder bulkHandler(BulkHandler bulkHandler, int maxBatchSize, long linger, TimeUnit timeUnit){
+			if (maxBatchSize <= 0 || linger < 0){
+				throw new IllegalArgumentException("The batch size must be positive and the linger time not negative. Informed: maxBatchSize=" 
+												   + maxBatchSize + ", linger=" + linger);
+			}
+			this.bulkHandler = Objects.requireNonNull(bulkHandler, "bulkHandler");
+			this.maxBatchSize = maxBatchSize;
+			this.lingerNanos = timeUnit.toNanos(linger);
+			return this;
+		}
+		
+		/**
+		 * Only tasks with equal keys are put in the same batch of the {@link #bulkHandler(BulkHandler, int, long, TimeUnit)}.
+		 * 
+		 * @param batchGroupKey gives the group of a task, or null if it may be in any batch.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder batchGroupingBy(Function<? super Runnable, ?> batchGroupKey){
+			this.batchGroupKey = Objects.requireNonNull(batchGroupKey, "batchGroupKey");
+			return this;
+		}
+		
+		/**
+		 * Persists the completed tasks in a memory-mapped journal, so after a restart the tasks completed before it
+		 * (and still returned by the producer) are not executed again. The journal is reloaded when the consumer is created,
+		 * and the tasks not returned up to the first cycle going through all the tasks of the producer are forgotten. The journal follows the 
+		 * {@link #completedTaskMemory(CompletedTaskMemory) memory}: a task forgotten by it is also removed from the journal.
+		 * 
+		 * @param file the journal file, created if it does not exist.
+		 * @param journalKey gives the key identifying a task across restarts (e.g. the id of the record it processes).
+		 * @return this builder.
+		 */
+		public ConsumerBuilder completionJournal(Path file, Function<? super Runnable, String> journalKey){
+			this.journalFile = Objects.requireNonNull(file, "file");
+			this.journalKey = Objects.requireNonNull(journalKey, "journalKey");
+			return this;
+		}
+		
+		/**
+		 * Splits the tasks among the consumers of several processes pulling the same source, each task being forwarded 
+		 * only by the node owning its key (by consistent hashing among the live nodes) and after claiming it in the store.
+		 * The lease of this node is renewed by a thread of its own, independently of the pulling cycles. 
+		 * When a node stops, its share goes to the others once its lease expires. By default, every task returned 
+		 * by the producer is forwarded. A claim is released when its task is forgotten, so the sharding can not be used 
+		 * with the {@link CompletedTaskMemory#compact() compact memory}.
+		 * 
+		 * @param nodeId identifies this consumer among the nodes, unique and stable across restarts (e.g. the host name).
+		 * @param claimStore the store shared by the nodes, e.g. {@link ClaimStore#sharedDirectory(Path, long, TimeUnit)}.
+		 * @param shardKey gives the key identifying a task in every node, or null if the task is not shared.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder sharding(String nodeId, ClaimStore claimStore, Function<? super Runnable, String> shardKey){
+			this.nodeId = Objects.requireNonNull(nodeId, "nodeId");
+			this.claimStore = Objects.requireNonNull(claimStore, "claimStore");
+			this.shardKey = Objects.requireNonNull(shardKey, "shardKey");
+			return this;
+		}
+		
+		/**
+		 * Defines where the measures of the tasks life cycle and of the pulling cycles are sent,
+		 * e.g. a {@link RecordingConsumerMetrics}. By default, nothing is measured.
+		 * 
+		 * @param metrics receiver of the measures.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder metrics(ConsumerMetrics metrics){
+			this.metrics = Objects.requireNonNull(metrics, "metrics");
+			return this;
+		}
+		
+		/**
+		 * Registers a listener of the tasks life cycle, e.g. {@link TaskLifecycleListener#logging()}.
+		 * By default, nothing is reported.
+		 * 
+		 * @param listener the listener to be registered.
+		 * @return this builder.
+		 */
+		public ConsumerBuilder listener(TaskLifecycleListener listener){
+			this.listeners.add(Objects.requireNonNull(listener, "listener"));
+			return this;
+		}
+		
 		/**
 		 * Inicia o processo de consumo das tarefas
 		 * @return
 		 */
 		public final PeriodicConsumer create(){
 			// TODO Antes de seguir, validar se os valores informado sao validos
-			distributor = Executors.newScheduledThreadPool(1, Executors.defaultThreadFactory());
-			return new PeriodicConsumer(consumerService, producer, distributor, interval, timeUnit, batchAmount);
+			ScheduledThreadPoolExecutor distributor = new ScheduledThreadPoolExecutor(1, Executors.defaultThreadFactory());
+			distributor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+			this.distributor = distributor;
+			return new PeriodicConsumer(this);
 		}
 	}
 	
@@ -127,11 +483,207 @@ public class PeriodicConsumer {
 		if (distributor.isShutdown()){
 			throw new IllegalStateException("This consumer already disconnected. You will need to create a new one.");
 		}
-		distributor.scheduleWithFixedDelay(this::process, 0, interval, timeUnit);
+		if (adaptiveInterval == null){
+			cycles = distributor.scheduleWithFixedDelay(this::process, 0, interval, timeUnit);
+		} else {
+			distributor.execute(this::adaptiveCycle);
+		}
 		LOGGER.info("Started.");
 		return this;
 	}
 	
+	/**
+	 * Changes the interval between the pulling cycles, the next cycle waiting the new interval.
+	 * 
+	 * @return this consumer, for further control.
+	 * @throws IllegalStateException if the interval is adaptive.
+	 */
+	public PeriodicConsumer changeTimeInterval(long interval, TimeUnit timeUnit){
+		if (adaptiveInterval != null){
+			throw new IllegalStateException("The interval is adaptive, it can not be changed.");
+		}
+		if (interval <= 0){
+			throw new IllegalArgumentException("The interval must be positive. Informed: " + interval);
+		}
+		reconfigure("interval to " + interval + " " + timeUnit, () -> {
+			this.interval = interval;
+			this.timeUnit = timeUnit;
+			if (cycles != null && cycles.cancel(false)){
+				cycles = distributor.scheduleWithFixedDelay(this::process, interval, interval, timeUnit);
+			}
+		});
+		return this;
+	}
+	
+	/**
+	 * Changes the maximum amount of tasks waiting/executing in the consumers (zero or less means no limit), 
+	 * from the next cycle on. The tasks already forwarded beyond a reduced limit are not interrupted.
+	 * 
+	 * @return this consumer, for further control.
+	 * @throws IllegalStateException if the limit is adaptive.
+	 */
+	public PeriodicConsumer changeBatchAmount(int batchAmount){
+		if (concurrencyLimit != null){
+			throw new IllegalStateException("The concurrency limit is adaptive, the batch amount can not be changed.");
+		}
+		reconfigure("batch amount to " + batchAmount, () -> this.batchAmount = batchAmount);
+		return this;
+	}
+	
+	/**
+	 * Changes the amount of threads of the consumers, the idle ones beyond a reduced size being terminated.
+	 * 
+	 * @return this consumer, for further control.
+	 * @throws IllegalStateException if the {@link ConsumerBuilder#consumerService(ExecutorService) consumer service} 
+	 * is not a {@link ThreadPoolExecutor}.
+	 */
+	public PeriodicConsumer resizeConsumers(int poolSize){
+		if (poolSize <= 0){
+			throw new IllegalArgumentException("The pool size must be positive. Informed: " + poolSize);
+		}
+		if (!(workers instanceof ThreadPoolExecutor)){
+			throw new IllegalStateException("Only a ThreadPoolExecutor can be resized, the consumer service is a " + workers.getClass().getName() + ".");
+		}
+		ThreadPoolExecutor pool = (ThreadPoolExecutor) workers;
+		reconfigure("consumers pool size to " + poolSize, () -> {
+			if (poolSize > pool.getMaximumPoolSize()){
+				pool.setMaximumPoolSize(poolSize);
+				pool.setCorePoolSize(poolSize);
+			} else {
+				pool.setCorePoolSize(poolSize);
+				pool.setMaximumPoolSize(poolSize);
+			}
+		});
+		return this;
+	}
+	
+	/**
+	 * Stops forwarding tasks, from the next cycle on, while the ones already forwarded conclude.
+	 * The producer is not pulled, and the remembered tasks are kept.
+	 * 
+	 * @return this consumer, for further control.
+	 */
+	public PeriodicConsumer pause(){
+		reconfigure("state to paused", () -> paused = true);
+		return this;
+	}
+	
+	/**
+	 * Pauses the consumer and waits the tasks already forwarded to conclude.
+	 * The timeout bounds the whole call: the wait for the current cycle to finish and the wait for the drain.
+	 * 
+	 * @return false if there were still tasks waiting/executing when the timeout elapsed.
+	 */
+	public boolean pausesWaitingAtTheMost(long timeout, TimeUnit timeUnit) throws InterruptedException{
+		long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+		try {
+			reconfigure("state to paused", () -> paused = true).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error pausing the consumer.", e.getCause());
+		} catch (TimeoutException e) {
+			return false;
+		}
+		synchronized (drained) {
+			long remaining;
+			while (bookkeeping.inFlight() > 0 && (remaining = deadline - System.nanoTime()) > 0){
+				TimeUnit.NANOSECONDS.timedWait(drained, remaining);
+			}
+		}
+		return bookkeeping.inFlight() == 0;
+	}
+	
+	/**
+	 * Resumes forwarding tasks, from the next cycle on.
+	 * 
+	 * @return this consumer, for further control.
+	 */
+	public PeriodicConsumer resume(){
+		reconfigure("state to resumed", () -> {
+			paused = false;
+			if (dispatchQueue != null && !dispatchQueue.isEmpty()){
+				requestDrain();
+			}
+			if (nextCycle != null && nextCycle.cancel(false)){
+				adaptiveCycle();
+			}
+		});
+		return this;
+	}
+	
+	/**
+	 * Applies a change in the distributor, so it takes effect between two cycles.
+	 */
+	private Future<?> reconfigure(String change, Runnable action){
+		try {
+			return distributor.submit(() -> {
+				action.run();
+				LOGGER.info("Changed the {}.", change);
+			});
+		} catch (RejectedExecutionException e) {
+			throw new IllegalStateException("This consumer already disconnected. You will need to create a new one.", e);
+		}
+	}
+	
+	private void adaptiveCycle(){
+		long delay = adaptiveInterval.maxNanos();
+		try {
+			delay = process();
+		} catch (Exception e) {
+			LOGGER.error("Error in the pulling cycle.", e);
+		}
+		wakeUpRequested.set(false);
+		try {
+			nextCycle = distributor.schedule(this::adaptiveCycle, delay, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			LOGGER.info("Distributor stopped, the next cycle will not be scheduled.");
+		}
+	}
+	
+	/**
+	 * Anticipates the next adaptive cycle when the last one was limited by the capacity, 
+	 * coalescing the requests done while the cycle is still pending. When paused, wakes up who waits the drain.
+	 */
+	private void slotReleased(){
+		if (paused){
+			synchronized (drained) {
+				drained.notifyAll();
+			}
+		}
+		if (dispatchQueue != null && !dispatchQueue.isEmpty()){
+			requestDrain();
+		}
+		if (adaptiveInterval == null || !waitingForCapacity || !wakeUpRequested.compareAndSet(false, true)){
+			return;
+		}
+		try {
+			distributor.execute(() -> {
+				if (nextCycle != null && nextCycle.cancel(false)){
+					adaptiveCycle();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			LOGGER.info("Distributor stopped, the slot released will not anticipate the next cycle.");
+		}
+	}
+	
+	/**
+	 * Forwards the queued tasks in the distributor as soon as possible, 
+	 * coalescing the requests done while the previous one is still pending.
+	 */
+	private void requestDrain(){
+		if (!drainRequested.compareAndSet(false, true)){
+			return;
+		}
+		try {
+			distributor.execute(() -> {
+				drainRequested.set(false);
+				dispatchQueued();
+			});
+		} catch (RejectedExecutionException e) {
+			LOGGER.info("Distributor stopped, the queued tasks will not be forwarded.");
+		}
+	}
+	
 	private PeriodicConsumer finish(String name, ExecutorService executor, long timeout, TimeUnit timeUnit) throws InterruptedException{
 		LOGGER.info("- Stopping "+ name + "... ");
 		executor.shutdown();
@@ -142,76 +694,241 @@ public class PeriodicConsumer {
 	public PeriodicConsumer finishesWaitingAtTheMost(long timeout, TimeUnit timeUnit) throws InterruptedException{
 		LOGGER.info("Requesting stop (waiting tasks conclusion to finish... )");
 		finish("the distributor", distributor, timeout, timeUnit);
+		if (!distributor.isTerminated()){
+			LOGGER.warn("The distributor did not stop in time, interrupting it.");
+			distributor.shutdownNow();
+		}
+		if (batcher != null){
+			batcher.flush();
+		}
+		if (prefetcher != null){
+			finish("the prefetcher", prefetcher.fetcher(), timeout, timeUnit);
+		}
 		finish("the consumers", consumerService, timeout, timeUnit);
+		if (watchdog != null){
+			watchdog.stop();
+		}
+		if (sharding != null){
+			sharding.leave();
+		}
+		if (journal != null){
+			try {
+				journal.close();
+			} catch (IOException e) {
+				LOGGER.warn("Error closing the completion journal.", e);
+			}
+		}
 		LOGGER.info("Stoped.");
 		return this;
 	}
 	
-	private Stream<TaskWrapper> getTheNextTasks() {
-		Iterator<Runnable> nextTasks = producer.nextTasks();
-		if (nextTasks == null){
-			LOGGER.info("No tasks obtained from Producer.");
-			return Stream.empty();
-		}
-				
-		Iterable<Runnable> tasks = () -> nextTasks;		
-		return StreamSupport.stream(tasks.spliterator(), false)
-							.filter(Objects::nonNull)
-							.map(task -> TaskWrapper.create(task)
-									  			    .onError(recordsTaskError)
-											        .onComplete(recordsCompletedTask));
+	/**
+	 * @return read-only view of the tasks quarantined by the {@link ConsumerBuilder#retryPolicy(RetryPolicy) retry policy}.
+	 */
+	public Set<Runnable> quarantined(){
+		return bookkeeping.quarantined();
 	}
-
-	private Consumer<TaskWrapper> showTask = 
-			task -> {
-				LOGGER.info("Task OBTAINED -> " + task);
-			};
-	
-	private Consumer<TaskWrapper> recordsForwardedTasks = 
-			task -> {
-				forwardedTasks.add(task);
-				LOGGER.info("Task WAITING/EXECUTING -> " + task);
-			};
-	
-	private Consumer<TaskWrapper> recordsTaskError = 
-			task -> {
-				forwardedTasks.remove(task);
-				LOGGER.info("Task PRESENTED ERROR (it may be repeated) -> " + task);
-			};
-	
-	private Consumer<TaskWrapper> recordsCompletedTask = 
-			task -> {
-				forwardedTasks.remove(task);
-				completedTasks.add(task);
-				LOGGER.info("Task COMPLETED -> " + task);
-			};
-	
-	private void process(){
-		Set<TaskWrapper> returnedTasks = new HashSet<>();
-		LOGGER.info("Getting the next Producer tasks, filtering and distributing ... ");
-		
-		Stream<TaskWrapper> nextTasks = this.getTheNextTasks()
-											.peek(showTask)
-											.peek(returnedTasks::add)
-											.filter(notForwarded.and(notCompleted));
-		if (batchAmount > 0){
-			nextTasks = nextTasks.limit(batchAmount - forwardedTasks.size());
-		} 
-		
-		nextTasks.peek(recordsForwardedTasks)
-		         .forEach(consumerService::execute);
-		
-		LOGGER.info("Distributed.");
+	
+	/**
+	 * Releases a quarantined task, so it is executed again when returned by the producer.
+	 * 
+	 * @return false if the task was not quarantined.
+	 */
+	public boolean releaseFromQuarantine(Runnable task){
+		return bookkeeping.release(task);
+	}
+	
+	/**
+	 * Executes one pulling cycle.
+	 * <p>
+	 * Package visible for the benchmarks, it must only be called by the distributor.
+	 * 
+	 * @return the delay until the next cycle, in nanoseconds, when the interval is adaptive. 
+	 */
+	long process(){
+		if (sharding != null){
+			sharding.refresh();
+		}
+		if (paused){
+			LOGGER.debug("Paused, the Producer will not be pulled in this cycle.");
+			return adaptiveInterval == null ? 0 : adaptiveInterval.maxNanos();
+		}
+		if (prefetcher != null){
+			return dispatchQueued();
+		}
+		long cycleStart = System.nanoTime();
+		LOGGER.debug("Getting the next Producer tasks, filtering and distributing ... ");
+		if (dispatchQueue != null){
+			enqueue(cycleStart);
+			return dispatchQueued();
+		}
+		
+		int freeCapacity = freeCapacity();
+		if (freeCapacity == 0){
+			LOGGER.debug("No free capacity, the Producer will not be pulled in this cycle.");
+			waitingForCapacity = true;
+			return adaptiveInterval == null ? 0 : adaptiveInterval.nextDelay(0, 0, 0);
+		}
+		
+		Iterator<Runnable> producedTasks = producer.nextTasks(freeCapacity < 0 ? Integer.MAX_VALUE : freeCapacity, 
+															  excludedJobs);
+		long producerNanos = System.nanoTime() - cycleStart;
+		
+		int accepted = 0;
+		boolean exhausted = true;
+		if (producedTasks == null){
+			LOGGER.debug("No tasks obtained from Producer.");
+		} else {
+			while ((freeCapacity < 0 || accepted < freeCapacity) && producedTasks.hasNext()){
+				Runnable job = producedTasks.next();
+				if (job == null || !bookkeeping.isNew(job) || !claimed(job)){
+					continue;
+				}
+				if (forward(job, System.nanoTime())){
+					accepted++;
+				}
+			}
+			exhausted = !producedTasks.hasNext();
+		}
+		waitingForCapacity = freeCapacity >= 0 && accepted >= freeCapacity;
 		
+		bookkeeping.cycleFinished(exhausted);
+		LOGGER.debug("Distributed {} tasks ({} completed tasks remembered).", accepted, bookkeeping.remembered());
+		metrics.pollFinished(System.nanoTime() - cycleStart, producerNanos, accepted);
+		return adaptiveInterval == null ? 0 : adaptiveInterval.nextDelay(accepted, freeCapacity, producerNanos);
+	}
+	
+	/**
+	 * Pulls the Producer into the dispatch queue, while it has room.
+	 */
+	private void enqueue(long cycleStart){
+		int demand = dispatchQueue.demand();
+		if (demand == 0){
+			LOGGER.debug("The dispatch queue is full, the Producer will not be pulled in this cycle.");
+			return;
+		}
+		Iterator<Runnable> producedTasks = producer.nextTasks(demand, excludedJobs);
+		long producerNanos = System.nanoTime() - cycleStart;
+		int queued = dispatchQueue.fill(producedTasks, bookkeeping);
+		bookkeeping.cycleFinished(producedTasks == null || !producedTasks.hasNext());
+		LOGGER.debug("Queued {} tasks ({} completed tasks remembered).", queued, bookkeeping.remembered());
+		metrics.pollFinished(System.nanoTime() - cycleStart, producerNanos, queued);
+	}
+	
+	/**
+	 * Forwards the queued tasks while there is capacity, and asks the prefetcher (if any) for the next ones.
+	 * 
+	 * @return the delay until the next cycle, in nanoseconds, when the interval is adaptive. 
+	 */
+	private long dispatchQueued(){
+		if (paused){
+			return adaptiveInterval == null ? 0 : adaptiveInterval.maxNanos();
+		}
+		int freeCapacity = freeCapacity();
+		int accepted = 0;
+		List<DispatchQueue.Entry> deferred = null;
+		long rateWait = Long.MAX_VALUE;
+		while (freeCapacity < 0 || accepted < freeCapacity){
+			if (rateGovernor != null){
+				long globalWait = rateGovernor.nanosUntilGlobalToken();
+				if (globalWait > 0){
+					rateWait = globalWait;
+					break;
+				}
+			}
+			DispatchQueue.Entry entry = dispatchQueue.poll();
+			if (entry == null){
+				break;
+			}
+			Runnable job = entry.job();
+			if (!bookkeeping.isStillNew(job) || !claimed(job)){
+				continue;
+			}
+			long keyWait = rateGovernor == null ? 0 : rateGovernor.tryAcquire(job);
+			if (keyWait > 0){
+				deferred = deferred == null ? new ArrayList<>() : deferred;
+				deferred.add(entry);
+				rateWait = Math.min(rateWait, keyWait);
+				continue;
+			}
+			if (forward(job, entry.obtainedAt())){
+				accepted++;
+			}
+		}
+		if (rateGovernor != null){
+			deferRateLimited(deferred, rateWait);
+		}
+		waitingForCapacity = freeCapacity >= 0 && accepted >= freeCapacity;
+		if (prefetcher != null){
+			prefetcher.requestFetch();
+		}
+		return adaptiveInterval == null ? 0 : adaptiveInterval.nextDelay(accepted, freeCapacity, 0);
+	}
+	
+	/**
+	 * Puts back in the queue the tasks waiting for the rate limit (even if the prefetcher filled it meanwhile), 
+	 * and schedules the next dispatch for when the limit allows it, unless there is one already scheduled.
+	 */
+	private void deferRateLimited(List<DispatchQueue.Entry> deferred, long rateWait){
+		if (deferred != null){
+			deferred.forEach(dispatchQueue::requeue);
+		}
+		rateGovernor.evictIdleKeys();
+		if (rateWait == Long.MAX_VALUE || (rateWakeUp != null && !rateWakeUp.isDone())){
+			return;
+		}
 		try {
-			LOGGER.info("Cleaning completed tasks... ");
-			Predicate<TaskWrapper> notReturnedByTaskProducer =
-					filterNotContained.apply(returnedTasks, task -> "Completed task still returned by the Producer, will be kept in the list.. -> " + task);
-			
-			completedTasks.removeIf(notReturnedByTaskProducer);
-			LOGGER.info("Cleaning finished (There are still: " + completedTasks.size() + " completed tasks in the list.)" );
-		} catch (Exception e) {
-			e.printStackTrace();
+			rateWakeUp = distributor.schedule(this::requestDrain, rateWait, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			LOGGER.info("Distributor stopped, the tasks waiting for the rate limit will not be forwarded.");
+		}
+	}
+	
+	/**
+	 * @return free slots for new tasks, or -1 if there is no limit.
+	 */
+	private int freeCapacity(){
+		int limit = concurrencyLimit == null ? batchAmount : concurrencyLimit.limit();
+		return limit > 0 ? Math.max(0, limit - bookkeeping.inFlight()) : -1;
+	}
+	
+	private boolean claimed(Runnable job){
+		return sharding == null || sharding.tryClaim(job);
+	}
+	
+	private void retracted(Runnable job){
+		bookkeeping.retracted(job);
+	}
+	
+	/**
+	 * @return false if the job was not forwarded, having been forwarded or completed meanwhile.
+	 */
+	private boolean forward(Runnable job, long obtainedAt){
+		TaskWrapper task = bookkeeping.wrap(job, obtainedAt);
+		if (!bookkeeping.recordsForwardedTask(task)){
+			return false;
+		}
+		if (batcher == null){
+			if (watchdog != null){
+				task.watchedBy(watchdog);
+			}
+			execute(task);
+		} else {
+			batcher.add(task);
+		}
+		return true;
+	}
+	
+	/**
+	 * Concludes as failed the task rejected by the consumers (e.g. saturated or shut down), 
+	 * so it does not stay forwarded and is retried as any failed task.
+	 */
+	private void execute(TaskWrapper task){
+		try {
+			consumerService.execute(task);
+		} catch (RejectedExecutionException e) {
+			LOGGER.error("Consumers rejected the task " + task + ", it is concluded as failed.", e);
+			task.finished(true);
 		}
 	}
-}
\ No newline at end of file
+}
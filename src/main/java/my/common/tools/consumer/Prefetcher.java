@@ -0,0 +1,87 @@
+package my.common.tools.consumer;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import my.common.tools.producer.TaskProducer;
+
+/**
+ * Fetches the next tasks from the producer in its own thread, while the previous ones execute,
+ * keeping them in a bounded {@link DispatchQueue} until the distributor has capacity to forward them.
+ * <p>
+ * A job is staged only once, and the producer receives the staged jobs together with the in-flight ones
+ * as the jobs to exclude. The distributor must check each staged job again before forwarding it, 
+ * as it may have been forwarded or completed while staged.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class Prefetcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(Prefetcher.class);
+
+	private final TaskProducer producer;
+	private final TaskBookkeeping bookkeeping;
+	private final ConsumerMetrics metrics;
+	private final Runnable onStaged;
+
+	private final ExecutorService fetcher = Executors.newSingleThreadExecutor(Executors.defaultThreadFactory());
+	private final DispatchQueue staging;
+	private final Set<Runnable> excluded;
+	private final AtomicBoolean fetching = new AtomicBoolean();
+
+	/**
+	 * @param onStaged action executed after a fetch stages new jobs.
+	 */
+	Prefetcher(TaskProducer producer, TaskBookkeeping bookkeeping, ConsumerMetrics metrics, DispatchQueue staging, Runnable onStaged) {
+		this.producer = producer;
+		this.bookkeeping = bookkeeping;
+		this.metrics = metrics;
+		this.staging = staging;
+		this.excluded = staging.excluding(bookkeeping.excludedJobs());
+		this.onStaged = onStaged;
+	}
+
+	/**
+	 * Starts a fetch, unless one is already running or the staging buffer is full (and not ordered).
+	 */
+	void requestFetch(){
+		if (staging.demand() == 0 || !fetching.compareAndSet(false, true)){
+			return;
+		}
+		try {
+			fetcher.execute(this::fetch);
+		} catch (RejectedExecutionException e) {
+			fetching.set(false);
+		}
+	}
+
+	ExecutorService fetcher(){
+		return fetcher;
+	}
+
+	private void fetch(){
+		int stagedNow = 0;
+		try {
+			long start = System.nanoTime();
+			Iterator<Runnable> produced = producer.nextTasks(staging.demand(), excluded);
+			long producerNanos = System.nanoTime() - start;
+			stagedNow = staging.fill(produced, bookkeeping);
+			bookkeeping.cycleFinished(produced == null || !produced.hasNext());
+			metrics.pollFinished(System.nanoTime() - start, producerNanos, stagedNow);
+		} catch (RuntimeException e) {
+			LOGGER.error("Error fetching the next tasks from the Producer.", e);
+		} finally {
+			fetching.set(false);
+		}
+		if (stagedNow > 0){
+			onStaged.run();
+		}
+	}
+}
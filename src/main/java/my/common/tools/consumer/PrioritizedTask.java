@@ -0,0 +1,35 @@
+package my.common.tools.consumer;
+
+/**
+ * Task exposing how urgent it is, used by the {@link DispatchOrder} comparators 
+ * to choose which waiting task is forwarded first.
+ * <p>
+ * Tasks not implementing this interface are ordered as if they returned the default values.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface PrioritizedTask extends Runnable {
+
+	/**
+	 * @return the priority of this task, the higher ones are forwarded first.
+	 */
+	default int priority(){
+		return 0;
+	}
+
+	/**
+	 * @return the time (as in {@link System#currentTimeMillis()}) this task should be concluded by,
+	 * or {@link Long#MAX_VALUE} if it has no deadline.
+	 */
+	default long deadline(){
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return the estimated cost of this task (e.g. its execution time), in any unit shared by all the tasks,
+	 * or {@link Long#MAX_VALUE} if unknown.
+	 */
+	default long estimatedCost(){
+		return Long.MAX_VALUE;
+	}
+}
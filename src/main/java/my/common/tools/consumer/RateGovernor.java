@@ -0,0 +1,84 @@
+package my.common.tools.consumer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies a {@link RateLimit} to the tasks being forwarded, only used by the distributor thread.
+ * <p>
+ * The buckets of the keys are created on demand, and forgotten (at most once per second) when they are full again, 
+ * so the keys no longer used hold no memory.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class RateGovernor {
+
+	private static final long EVICTION_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private final RateLimit limit;
+	private final TokenBucket global;
+	private final Map<Object, TokenBucket> buckets = new HashMap<>();
+	private long evictedAt;
+
+	RateGovernor(RateLimit limit) {
+		this.limit = limit;
+		long now = System.nanoTime();
+		this.global = limit.burst > 0 ? new TokenBucket(limit.permitsPerSecond, limit.burst, now) : null;
+		this.evictedAt = now;
+	}
+
+	/**
+	 * @return zero if the global limit allows one more task, otherwise the nanoseconds until it does.
+	 */
+	long nanosUntilGlobalToken(){
+		return global == null ? 0 : global.nanosUntilToken(System.nanoTime());
+	}
+
+	/**
+	 * Takes the tokens for the task, if the limit of its key allows it 
+	 * (the global one must have been checked by {@link #nanosUntilGlobalToken()}).
+	 * 
+	 * @return zero if the task may be forwarded, otherwise the nanoseconds until the limit of its key allows it.
+	 */
+	long tryAcquire(Runnable job){
+		Object key = limit.key == null ? null : limit.key.apply(job);
+		if (key != null){
+			long now = System.nanoTime();
+			TokenBucket bucket = buckets.computeIfAbsent(key, newKey -> new TokenBucket(limit.permitsPerSecondPerKey, limit.burstPerKey, now));
+			long wait = bucket.nanosUntilToken(now);
+			if (wait > 0){
+				return wait;
+			}
+			bucket.take();
+		}
+		if (global != null){
+			global.take();
+		}
+		return 0;
+	}
+
+	/**
+	 * Forgets the buckets of the keys no longer limited, at most once per second.
+	 */
+	void evictIdleKeys(){
+		long now = System.nanoTime();
+		if (buckets.isEmpty() || now - evictedAt < EVICTION_INTERVAL){
+			return;
+		}
+		evictedAt = now;
+		for (Iterator<TokenBucket> iterator = buckets.values().iterator(); iterator.hasNext();){
+			if (iterator.next().isFull(now)){
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return amount of keys with a bucket.
+	 */
+	int keys(){
+		return buckets.size();
+	}
+}
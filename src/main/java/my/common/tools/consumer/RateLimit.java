@@ -0,0 +1,66 @@
+package my.common.tools.consumer;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Limit of tasks forwarded per second, as token buckets: one for all the tasks and/or one per key.
+ * <p>
+ * A bucket holds up to {@code burst} tokens, refilled continuously at the rate, and each forwarded task takes one token
+ * from the global bucket and one from the bucket of its key. A task without tokens is not dropped: it waits 
+ * in the dispatch queue until the tokens it needs are refilled.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public final class RateLimit {
+
+	final double permitsPerSecond;
+	final int burst;
+	final Function<? super Runnable, ?> key;
+	final double permitsPerSecondPerKey;
+	final int burstPerKey;
+
+	private RateLimit(double permitsPerSecond, int burst, Function<? super Runnable, ?> key, double permitsPerSecondPerKey, int burstPerKey) {
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.key = key;
+		this.permitsPerSecondPerKey = permitsPerSecondPerKey;
+		this.burstPerKey = burstPerKey;
+	}
+
+	/**
+	 * @param permitsPerSecond sustained amount of tasks forwarded per second.
+	 * @param burst amount of tasks that may be forwarded at once, after an idle period.
+	 * @return limit shared by all the tasks.
+	 */
+	public static RateLimit perSecond(double permitsPerSecond, int burst){
+		check(permitsPerSecond, burst);
+		return new RateLimit(permitsPerSecond, burst, null, 0, 0);
+	}
+
+	/**
+	 * @param key gives the key of a task (e.g. the API it calls), or null if it is not limited by key.
+	 * @param permitsPerSecond sustained amount of tasks of each key forwarded per second.
+	 * @param burst amount of tasks of a key that may be forwarded at once, after an idle period.
+	 * @return limit for the tasks of each key, without a limit shared by all of them.
+	 */
+	public static RateLimit perKey(Function<? super Runnable, ?> key, double permitsPerSecond, int burst){
+		return new RateLimit(0, 0, null, 0, 0).andPerKey(key, permitsPerSecond, burst);
+	}
+
+	/**
+	 * @return this limit, also limiting the tasks of each key.
+	 * @see #perKey(Function, double, int)
+	 */
+	public RateLimit andPerKey(Function<? super Runnable, ?> key, double permitsPerSecond, int burst){
+		check(permitsPerSecond, burst);
+		return new RateLimit(this.permitsPerSecond, this.burst, Objects.requireNonNull(key, "key"), permitsPerSecond, burst);
+	}
+
+	private static void check(double permitsPerSecond, int burst){
+		if (!(permitsPerSecond > 0) || burst <= 0){
+			throw new IllegalArgumentException("The rate and the burst must be positive. Informed: permitsPerSecond=" 
+											   + permitsPerSecond + ", burst=" + burst);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in {@link ConsumerMetrics}, keeping counters, the in-flight gauge and latency histograms 
+ * in memory, to be polled through {@link #snapshot()}.
+ * <p>
+ * The measures are cumulative since the creation, and recording them neither locks nor allocates.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public final class RecordingConsumerMetrics implements ConsumerMetrics {
+
+	private final LongAdder obtained = new LongAdder();
+	private final LongAdder duplicatedDiscarded = new LongAdder();
+	private final LongAdder completedDiscarded = new LongAdder();
+	private final LongAdder forwarded = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder polls = new LongAdder();
+
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+	private final LatencyHistogram execution = new LatencyHistogram();
+	private final LatencyHistogram endToEnd = new LatencyHistogram();
+	private final LatencyHistogram pollDuration = new LatencyHistogram();
+	private final LatencyHistogram producerDuration = new LatencyHistogram();
+
+	private RecordingConsumerMetrics() {
+	}
+
+	public static RecordingConsumerMetrics create(){
+		return new RecordingConsumerMetrics();
+	}
+
+	@Override
+	public void taskObtained(Runnable job) {
+		obtained.increment();
+	}
+
+	@Override
+	public void taskDiscarded(Runnable job, TaskState state) {
+		if (state == TaskState.FORWARDED){
+			duplicatedDiscarded.increment();
+		} else {
+			completedDiscarded.increment();
+		}
+	}
+
+	@Override
+	public void taskForwarded(TaskWrapper task) {
+		forwarded.increment();
+	}
+
+	@Override
+	public void taskFinished(TaskWrapper task, TaskState finalState) {
+		if (finalState == TaskState.COMPLETED){
+			completed.increment();
+		} else {
+			failed.increment();
+		}
+		queueWait.record(task.startedAt() - task.forwardedAt());
+		execution.record(task.finishedAt() - task.startedAt());
+		endToEnd.record(task.finishedAt() - task.obtainedAt());
+	}
+
+	@Override
+	public void pollFinished(long durationNanos, long producerNanos, int forwarded) {
+		polls.increment();
+		pollDuration.record(durationNanos);
+		producerDuration.record(producerNanos);
+	}
+
+	/**
+	 * @return the current values of every measure.
+	 */
+	public Snapshot snapshot(){
+		long finished = completed.sum() + failed.sum();
+		return new Snapshot(obtained.sum(), duplicatedDiscarded.sum(), completedDiscarded.sum(), forwarded.sum(),
+							completed.sum(), failed.sum(), Math.max(0, forwarded.sum() - finished), polls.sum(),
+							queueWait.snapshot(), execution.snapshot(), endToEnd.snapshot(), 
+							pollDuration.snapshot(), producerDuration.snapshot());
+	}
+
+	/**
+	 * Values of the measures at a given moment.
+	 */
+	public static final class Snapshot {
+		private final long obtained;
+		private final long duplicatedDiscarded;
+		private final long completedDiscarded;
+		private final long forwarded;
+		private final long completed;
+		private final long failed;
+		private final long inFlight;
+		private final long polls;
+		private final LatencyHistogram.Snapshot queueWait;
+		private final LatencyHistogram.Snapshot execution;
+		private final LatencyHistogram.Snapshot endToEnd;
+		private final LatencyHistogram.Snapshot pollDuration;
+		private final LatencyHistogram.Snapshot producerDuration;
+
+		private Snapshot(long obtained, long duplicatedDiscarded, long completedDiscarded, long forwarded, 
+						 long completed, long failed, long inFlight, long polls,
+						 LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot execution, LatencyHistogram.Snapshot endToEnd,
+						 LatencyHistogram.Snapshot pollDuration, LatencyHistogram.Snapshot producerDuration) {
+			this.obtained = obtained;
+			this.duplicatedDiscarded = duplicatedDiscarded;
+			this.completedDiscarded = completedDiscarded;
+			this.forwarded = forwarded;
+			this.completed = completed;
+			this.failed = failed;
+			this.inFlight = inFlight;
+			this.polls = polls;
+			this.queueWait = queueWait;
+			this.execution = execution;
+			this.endToEnd = endToEnd;
+			this.pollDuration = pollDuration;
+			this.producerDuration = producerDuration;
+		}
+
+		/** Tasks obtained from the producer. */
+		public long obtained(){
+			return obtained;
+		}
+
+		/** Obtained tasks discarded because they were still forwarded. */
+		public long duplicatedDiscarded(){
+			return duplicatedDiscarded;
+		}
+
+		/** Obtained tasks discarded because they were recently completed. */
+		public long completedDiscarded(){
+			return completedDiscarded;
+		}
+
+		public long forwarded(){
+			return forwarded;
+		}
+
+		public long completed(){
+			return completed;
+		}
+
+		public long failed(){
+			return failed;
+		}
+
+		/** Tasks forwarded and not finished yet (waiting or executing). */
+		public long inFlight(){
+			return inFlight;
+		}
+
+		public long polls(){
+			return polls;
+		}
+
+		/** Time between the forwarding and the start of the execution. */
+		public LatencyHistogram.Snapshot queueWait(){
+			return queueWait;
+		}
+
+		/** Time between the start and the end of the execution. */
+		public LatencyHistogram.Snapshot execution(){
+			return execution;
+		}
+
+		/** Time between obtaining the task from the producer and the end of its execution. */
+		public LatencyHistogram.Snapshot endToEnd(){
+			return endToEnd;
+		}
+
+		/** Time spent in each pulling cycle. */
+		public LatencyHistogram.Snapshot pollDuration(){
+			return pollDuration;
+		}
+
+		/** Time spent by the producer in each pulling cycle. */
+		public LatencyHistogram.Snapshot producerDuration(){
+			return producerDuration;
+		}
+
+		@Override
+		public String toString() {
+			return "ConsumerMetrics [obtained=" + obtained + ", duplicatedDiscarded=" + duplicatedDiscarded 
+					+ ", completedDiscarded=" + completedDiscarded + ", forwarded=" + forwarded 
+					+ ", completed=" + completed + ", failed=" + failed + ", inFlight=" + inFlight + ", polls=" + polls 
+					+ ", queueWait=" + queueWait + ", execution=" + execution + ", endToEnd=" + endToEnd 
+					+ ", pollDuration=" + pollDuration + ", producerDuration=" + producerDuration + "]";
+		}
+	}
+}
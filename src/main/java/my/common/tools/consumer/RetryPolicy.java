@@ -0,0 +1,68 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines when a failed task may be forwarded again, and after how many failures it is quarantined.
+ * <p>
+ * The delay doubles after each consecutive failure, up to a maximum, and is randomized between
+ * half of it and all of it, so the tasks failing together (e.g. by an unavailable resource) are not all retried together.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public final class RetryPolicy {
+
+	private final long initialDelayNanos;
+	private final long maxDelayNanos;
+	private final int maxAttempts;
+
+	private RetryPolicy(long initialDelayNanos, long maxDelayNanos, int maxAttempts) {
+		this.initialDelayNanos = initialDelayNanos;
+		this.maxDelayNanos = maxDelayNanos;
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * @param initialDelay delay after the first failure.
+	 * @param maxDelay longest delay between two attempts.
+	 * @param timeUnit unit of both delays.
+	 * @param maxAttempts attempts (the first execution included) before the task is quarantined, zero or less means never.
+	 * @return the policy.
+	 */
+	public static RetryPolicy exponentialBackoff(long initialDelay, long maxDelay, TimeUnit timeUnit, int maxAttempts){
+		if (initialDelay < 0 || maxDelay < initialDelay){
+			throw new IllegalArgumentException("The delays must satisfy 0 <= initialDelay <= maxDelay. Informed: initialDelay=" 
+											   + initialDelay + ", maxDelay=" + maxDelay);
+		}
+		return new RetryPolicy(timeUnit.toNanos(initialDelay), timeUnit.toNanos(maxDelay), maxAttempts);
+	}
+
+	/**
+	 * @param failures consecutive failures of the task, at least one.
+	 * @return the delay until the task may be forwarded again, in nanoseconds.
+	 */
+	long delayNanos(int failures){
+		long delay = initialDelayNanos;
+		for (int i = 1; i < failures && delay < maxDelayNanos; i++){
+			delay *= 2;
+		}
+		delay = Math.min(delay, maxDelayNanos);
+		long half = delay / 2;
+		return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+	}
+
+	/**
+	 * @return the longest delay between two attempts, in nanoseconds.
+	 */
+	long maxDelayNanos(){
+		return maxDelayNanos;
+	}
+
+	/**
+	 * @return true if a task failing that many times must be quarantined.
+	 */
+	boolean exhausted(int failures){
+		return maxAttempts > 0 && failures >= maxAttempts;
+	}
+}
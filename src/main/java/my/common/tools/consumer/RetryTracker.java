@@ -0,0 +1,166 @@
+package my.common.tools.consumer;
+
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Counts the consecutive failures of the tasks, telling when they may be forwarded again 
+ * and keeping the ones that failed too many times in a quarantine.
+ * <p>
+ * The failures are forgotten with the task by the memory of the concluded tasks. When the failed tasks are not 
+ * remembered, the failures not followed by a new attempt within a retention are expired instead, 
+ * from a queue ordered by the failure times (only its expired head being examined, by one thread at a time).
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class RetryTracker {
+
+	private static final long MIN_RETENTION_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private final RetryPolicy policy;
+	private final ConcurrentHashMap<Runnable, Failures> failures = new ConcurrentHashMap<>();
+	private final Set<Runnable> quarantine = ConcurrentHashMap.newKeySet();
+	private final long retentionNanos;
+	private final Queue<Expiration> expirations;
+	private final AtomicBoolean expiring = new AtomicBoolean();
+
+	RetryTracker(RetryPolicy policy) {
+		this(policy, -1);
+	}
+
+	/**
+	 * @return tracker of the failed tasks not remembered, keeping their failures for twice the longest delay 
+	 * of the policy (at least a minute) after the last failure, so a task supplied again in time still counts its attempts.
+	 */
+	static RetryTracker expiring(RetryPolicy policy){
+		return new RetryTracker(policy, Math.max(MIN_RETENTION_NANOS, Math.min(Long.MAX_VALUE / 4, policy.maxDelayNanos()) * 2));
+	}
+
+	/**
+	 * @param retentionNanos time the failures of a task are kept after its last failure, 
+	 * or a negative value if they are only forgotten with the task.
+	 */
+	RetryTracker(RetryPolicy policy, long retentionNanos) {
+		this.policy = policy;
+		this.retentionNanos = retentionNanos;
+		this.expirations = retentionNanos < 0 ? null : new ConcurrentLinkedQueue<>();
+	}
+
+	/**
+	 * @return {@link TaskState#QUARANTINED} or {@link TaskState#FAILED} if the job may not be forwarded now, otherwise null.
+	 */
+	TaskState blockingState(Runnable job){
+		if (failures.isEmpty()){
+			return null;
+		}
+		Failures jobFailures = failures.get(job);
+		if (jobFailures == null){
+			return null;
+		}
+		if (jobFailures.quarantined){
+			return TaskState.QUARANTINED;
+		}
+		return System.nanoTime() - jobFailures.retryAt < 0 ? TaskState.FAILED : null;
+	}
+
+	/**
+	 * @return true if the job was quarantined by this failure.
+	 */
+	boolean failed(Runnable job){
+		Failures jobFailures = failures.compute(job, (key, previous) -> {
+			int count = previous == null ? 1 : previous.count + 1;
+			return new Failures(count, System.nanoTime() + policy.delayNanos(count), policy.exhausted(count));
+		});
+		if (jobFailures.quarantined){
+			quarantine.add(job);
+		}
+		if (expirations != null){
+			long now = System.nanoTime();
+			expirations.add(new Expiration(job, jobFailures, now + retentionNanos));
+			expire(now);
+		}
+		return jobFailures.quarantined;
+	}
+
+	/**
+	 * Forgets the failures kept past the retention, unless quarantined or followed by another failure.
+	 */
+	void expire(){
+		if (expirations != null){
+			expire(System.nanoTime());
+		}
+	}
+
+	private void expire(long now){
+		if (!expiring.compareAndSet(false, true)){
+			return;
+		}
+		try {
+			Expiration head;
+			while ((head = expirations.peek()) != null && head.at - now <= 0){
+				expirations.poll();
+				if (!head.failures.quarantined){
+					failures.remove(head.job, head.failures);
+				}
+			}
+		} finally {
+			expiring.set(false);
+		}
+	}
+
+	void succeeded(Runnable job){
+		if (!failures.isEmpty()){
+			failures.remove(job);
+		}
+	}
+
+	/**
+	 * Forgets the failures of a job no longer remembered, unless it is quarantined.
+	 */
+	void forget(Runnable job){
+		if (!failures.isEmpty()){
+			failures.computeIfPresent(job, (key, jobFailures) -> jobFailures.quarantined ? jobFailures : null);
+		}
+	}
+
+	Set<Runnable> quarantined(){
+		return Collections.unmodifiableSet(quarantine);
+	}
+
+	boolean release(Runnable job){
+		if (!quarantine.remove(job)){
+			return false;
+		}
+		failures.remove(job);
+		return true;
+	}
+
+	private static final class Failures{
+		private final int count;
+		private final long retryAt;
+		private final boolean quarantined;
+
+		private Failures(int count, long retryAt, boolean quarantined) {
+			this.count = count;
+			this.retryAt = retryAt;
+			this.quarantined = quarantined;
+		}
+	}
+
+	private static final class Expiration{
+		private final Runnable job;
+		private final Failures failures;
+		private final long at;
+
+		private Expiration(Runnable job, Failures failures, long at) {
+			this.job = job;
+			this.failures = failures;
+			this.at = at;
+		}
+	}
+}
@@ -0,0 +1,324 @@
+package my.common.tools.consumer;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of the tasks forwarded to the consumers and of the ones recently completed,
+ * so the same task is not executed twice at the same time, nor right after its conclusion.
+ * <p>
+ * Shared by the consumer engines, the {@link CompletedTaskMemory} deciding when the concluded tasks can be forgotten.
+ * The obtained jobs are checked before being wrapped, so the discarded ones cost no allocation.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class TaskBookkeeping {
+
+	private final TaskRegistry registry = new TaskRegistry();
+
+	private final CompletedTaskMemory memory;
+	private final TaskLifecycleListener listener;
+	private final Runnable slotReleased;
+	private final RetryTracker retries;
+	private final CompletionJournal journal;
+	private final CompactTaskMemory compact;
+
+	private final Consumer<TaskWrapper> recordsTaskError = this::recordsTaskError;
+	private final Consumer<TaskWrapper> recordsCompletedTask = this::recordsCompletedTask;
+	private final Consumer<Runnable> forget;
+	private final Set<Runnable> excludedJobs = new ExcludedView();
+
+	/**
+	 * @param memory memory of the concluded tasks, or null if they must be forgotten right after the conclusion.
+	 * @param listener receives the events of the tasks life cycle.
+	 * @param slotReleased action executed after a forwarded task completes or fails.
+	 */
+	TaskBookkeeping(CompletedTaskMemory memory, TaskLifecycleListener listener, Runnable slotReleased) {
+		this(memory, listener, slotReleased, null, null);
+	}
+
+	/**
+	 * @param retryPolicy when the failed tasks may be forwarded again, or null if right away. When the failed tasks 
+	 * are not remembered (no memory, or the compact one), their failures expire as in {@link RetryTracker#expiring(RetryPolicy)}.
+	 * @param journal where the completed tasks are persisted (only when there is a memory), or null if they are not.
+	 */
+	TaskBookkeeping(CompletedTaskMemory memory, TaskLifecycleListener listener, Runnable slotReleased, 
+					RetryPolicy retryPolicy, CompletionJournal journal) {
+		this.memory = memory;
+		this.listener = listener;
+		this.slotReleased = slotReleased;
+		this.compact = memory instanceof CompactTaskMemory ? (CompactTaskMemory) memory : null;
+		this.retries = retryPolicy == null ? null 
+										   : memory == null || compact != null ? RetryTracker.expiring(retryPolicy) : new RetryTracker(retryPolicy);
+		if (compact != null && journal != null){
+			throw new IllegalArgumentException("The completion journal can not be used with the compact memory, which does not keep the tasks.");
+		}
+		this.journal = memory == null ? null : journal;
+		this.forget = retries == null && this.journal == null && listener == TaskLifecycleListener.NONE ? registry::forget : this::forget;
+	}
+
+	/**
+	 * Wraps the original task, recording its conclusion (or error) in this bookkeeping.
+	 */
+	TaskWrapper wrap(Runnable job){
+		return wrap(job, System.nanoTime());
+	}
+
+	/**
+	 * Wraps an original task obtained before now, e.g. staged before being forwarded.
+	 * 
+	 * @param obtainedAt when the task was obtained from the producer, as in {@link System#nanoTime()}.
+	 */
+	TaskWrapper wrap(Runnable job, long obtainedAt){
+		return TaskWrapper.create(job, obtainedAt)
+						  .onError(recordsTaskError)
+						  .onComplete(recordsCompletedTask);
+	}
+
+	/**
+	 * Reports the job obtained from the producer and checks it.
+	 * 
+	 * @return true if the job is neither being executed nor recently completed.
+	 */
+	boolean isNew(Runnable job){
+		listener.taskObtained(job);
+		return isStillNew(job);
+	}
+
+	/**
+	 * Checks again a job already obtained (e.g. buffered before being forwarded).
+	 * 
+	 * @return true if the job is neither being executed nor recently completed (nor waiting to be retried).
+	 */
+	boolean isStillNew(Runnable job){
+		TaskState state = registry.stateOf(job);
+		if (state == TaskState.FORWARDED){
+			listener.taskDiscarded(job, state);
+			return false;
+		}
+		if (returnedIfCompleted(job, state)){
+			listener.taskDiscarded(job, TaskState.COMPLETED);
+			return false;
+		}
+		TaskState blockingState = retries == null ? null : retries.blockingState(job);
+		if (blockingState != null){
+			listener.taskDiscarded(job, blockingState);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Stamps in the memory a concluded job returned again, restoring it first if completed before a restart.
+	 * 
+	 * @param state the state of the job in the registry, not forwarded.
+	 * @return true if the job is remembered as completed.
+	 */
+	private boolean returnedIfCompleted(Runnable job, TaskState state){
+		if (compact != null){
+			return compact.returnedIfRemembered(job);
+		}
+		if (state != null){
+			memory.returned(job);
+			return state == TaskState.COMPLETED;
+		}
+		if (journal != null && journal.recovered(job)){
+			registry.restore(job);
+			memory.remembered(job, forget);
+			return true;
+		}
+		return false;
+	}
+
+	int inFlight(){
+		return registry.forwarded();
+	}
+
+	/**
+	 * @return read-only view of the original jobs the consumer would discard: the ones waiting/executing 
+	 * and the ones remembered as completed. Checking a remembered job in the view stamps it as returned 
+	 * by the producer, so a producer skipping it does not make the memory forget it.
+	 */
+	Set<Runnable> excludedJobs(){
+		return excludedJobs;
+	}
+
+	int completed(){
+		return registry.concluded();
+	}
+
+	/**
+	 * Marks the task as forwarded, unless it became forwarded or completed since it was checked 
+	 * (then it is reported as discarded and must not be executed).
+	 * 
+	 * @return true if the task must be executed.
+	 */
+	boolean recordsForwardedTask(TaskWrapper task){
+		Runnable job = task.originalJob();
+		if (!registry.tryForward(job)){
+			TaskState state = registry.stateOf(job);
+			listener.taskDiscarded(job, state == null ? TaskState.FORWARDED : state);
+			return false;
+		}
+		task.forwarded();
+		listener.taskForwarded(task);
+		return true;
+	}
+
+	private void recordsTaskError(TaskWrapper task){
+		boolean quarantined = retries != null && retries.failed(task.originalJob());
+		conclude(task, TaskState.FAILED);
+		if (quarantined){
+			listener.taskQuarantined(task);
+		}
+		slotReleased.run();
+	}
+
+	/**
+	 * Concludes as failed a task the {@link TaskWatchdog} found executing past its timeout.
+	 */
+	void recordsTimedOutTask(TaskWrapper task){
+		listener.taskTimedOut(task);
+		recordsTaskError(task);
+	}
+
+	private void recordsCompletedTask(TaskWrapper task){
+		if (retries != null){
+			retries.succeeded(task.originalJob());
+		}
+		conclude(task, TaskState.COMPLETED);
+		slotReleased.run();
+	}
+
+	private void conclude(TaskWrapper task, TaskState finalState){
+		Runnable job = task.originalJob();
+		if (memory == null){
+			registry.conclude(job, null);
+			listener.taskForgotten(job);
+		} else if (compact != null){
+			registry.conclude(job, null);
+			if (finalState == TaskState.COMPLETED){
+				compact.remembered(job, forget);
+			} else {
+				listener.taskForgotten(job);
+			}
+		} else {
+			registry.conclude(job, finalState);
+			if (journal != null && finalState == TaskState.COMPLETED){
+				journal.completed(job);
+			}
+			memory.remembered(job, forget);
+		}
+		listener.taskFinished(task, finalState);
+	}
+
+	/**
+	 * Forgets a concluded job, unless it was forwarded again meanwhile: then it keeps its failures
+	 * (it is not stamped in the memory while forwarded, so a slow execution must not reset its attempts).
+	 */
+	private void forget(Runnable job){
+		registry.forget(job);
+		if (registry.stateOf(job) != null){
+			return;
+		}
+		if (retries != null){
+			retries.forget(job);
+		}
+		if (journal != null){
+			journal.forgotten(job);
+		}
+		listener.taskForgotten(job);
+	}
+
+	/**
+	 * @return read-only view of the quarantined jobs, empty if there is no retry policy.
+	 */
+	Set<Runnable> quarantined(){
+		return retries == null ? Collections.emptySet() : retries.quarantined();
+	}
+
+	/**
+	 * Releases a job from the quarantine, so it may be forwarded again.
+	 * 
+	 * @return false if the job was not quarantined.
+	 */
+	boolean release(Runnable job){
+		return retries != null && retries.release(job);
+	}
+
+	/**
+	 * Forgets a job retracted by the producer: its conclusion and its failures, even if quarantined.
+	 */
+	void retracted(Runnable job){
+		registry.forget(job);
+		if (retries != null){
+			retries.release(job);
+			retries.forget(job);
+		}
+	}
+
+	/**
+	 * Lets the memory forget the concluded tasks it no longer needs, after a cycle that saw all the jobs of the producer.
+	 */
+	void cycleFinished(){
+		cycleFinished(true);
+	}
+
+	/**
+	 * Lets the memory forget the concluded tasks it no longer needs.
+	 * 
+	 * @param producerExhausted whether all the jobs returned by the producer in the cycle were seen: 
+	 * only then the memory and the journal forget the tasks not returned, as a cycle limited by the demand 
+	 * may have left out jobs still pending.
+	 */
+	void cycleFinished(boolean producerExhausted){
+		if (memory != null && producerExhausted){
+			memory.cycleFinished(forget);
+		}
+		if (journal != null){
+			journal.cycleFinished(producerExhausted);
+		}
+		if (retries != null){
+			retries.expire();
+		}
+	}
+
+	/**
+	 * @return amount of concluded tasks remembered.
+	 */
+	int remembered(){
+		return memory == null ? 0 : memory.size();
+	}
+
+	private final class ExcludedView extends AbstractSet<Runnable> {
+
+		@Override
+		public boolean contains(Object job) {
+			if (!(job instanceof Runnable)){
+				return false;
+			}
+			TaskState state = registry.stateOf((Runnable) job);
+			return state == TaskState.FORWARDED || (memory != null && returnedIfCompleted((Runnable) job, state));
+		}
+
+		/**
+		 * Iterates the jobs kept by the registry, not the ids remembered by the {@link CompactTaskMemory}.
+		 */
+		@Override
+		public Iterator<Runnable> iterator() {
+			return registry.forwardedOrCompleted();
+		}
+
+		@Override
+		public int size() {
+			int size = 0;
+			for (Iterator<Runnable> jobs = iterator(); jobs.hasNext(); jobs.next()){
+				size++;
+			}
+			return size;
+		}
+	}
+}
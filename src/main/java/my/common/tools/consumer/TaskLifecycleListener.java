@@ -0,0 +1,77 @@
+package my.common.tools.consumer;
+
+/**
+ * Listener of the tasks life cycle in a consumer.
+ * <p>
+ * Every method does nothing by default, so a consumer without listeners pays nothing for the reporting.
+ * Implementations are called concurrently by the distributor and by the workers, in the hot path,
+ * so they must be cheap and thread safe. The obtained and discarded tasks are reported as the 
+ * original jobs, since they are not wrapped unless forwarded.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface TaskLifecycleListener {
+
+	/**
+	 * Listener ignoring every event.
+	 */
+	TaskLifecycleListener NONE = new TaskLifecycleListener() {};
+
+	/**
+	 * A job was obtained from the producer.
+	 */
+	default void taskObtained(Runnable job){
+	}
+
+	/**
+	 * An obtained job was discarded, because it is still forwarded, was recently completed, 
+	 * is waiting the delay before a retry or is quarantined.
+	 * 
+	 * @param state the state of the job that caused the discard.
+	 */
+	default void taskDiscarded(Runnable job, TaskState state){
+	}
+
+	/**
+	 * A task was forwarded to the consumers.
+	 */
+	default void taskForwarded(TaskWrapper task){
+	}
+
+	/**
+	 * A forwarded task finished its execution.
+	 * 
+	 * @param finalState {@link TaskState#COMPLETED} or {@link TaskState#FAILED}.
+	 */
+	default void taskFinished(TaskWrapper task, TaskState finalState){
+	}
+
+	/**
+	 * A failed task exceeded the attempts allowed by the {@link RetryPolicy} and was quarantined.
+	 */
+	default void taskQuarantined(TaskWrapper task){
+	}
+
+	/**
+	 * A task executed past its timeout and was interrupted. It is then reported as finished with {@link TaskState#FAILED}.
+	 * 
+	 * @see TimedTask
+	 */
+	default void taskTimedOut(TaskWrapper task){
+	}
+
+	/**
+	 * A concluded job was forgotten, evicted from the {@link CompletedTaskMemory} (or right after its conclusion
+	 * when there is no memory), so it is executed again if returned by the producer. 
+	 * Not reported for the {@link CompletedTaskMemory#compact() compact memory}, which does not keep the jobs.
+	 */
+	default void taskForgotten(Runnable job){
+	}
+
+	/**
+	 * @return listener logging every event, at INFO level (the messages the consumer used to log).
+	 */
+	static TaskLifecycleListener logging(){
+		return LoggingTaskLifecycleListener.INSTANCE;
+	}
+}
@@ -0,0 +1,129 @@
+package my.common.tools.consumer;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent registry holding a single state per task.
+ * <p>
+ * Built on a {@link ConcurrentHashMap}, so the workers concluding tasks do not contend 
+ * with the distributor checking the obtained ones, and every transition is a single atomic operation.
+ * The tasks are indexed by their original jobs, as {@link TaskWrapper} delegates its equality to them,
+ * and no transition allocates.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class TaskRegistry {
+
+	private final ConcurrentHashMap<Runnable, TaskState> states = new ConcurrentHashMap<>();
+	private final AtomicInteger forwarded = new AtomicInteger();
+	private final Set<Runnable> inFlight = new InFlightView();
+
+	/**
+	 * @return the current state of the task, or null if it is not known.
+	 */
+	TaskState stateOf(Runnable job){
+		return states.get(job);
+	}
+
+	/**
+	 * Marks the task as {@link TaskState#FORWARDED}, if it is unknown or {@link TaskState#FAILED}.
+	 * 
+	 * @return true if the task was marked, false if it is already forwarded or completed.
+	 */
+	boolean tryForward(Runnable job){
+		for (;;){
+			TaskState state = states.putIfAbsent(job, TaskState.FORWARDED);
+			if (state == null || (state == TaskState.FAILED && states.replace(job, TaskState.FAILED, TaskState.FORWARDED))){
+				forwarded.incrementAndGet();
+				return true;
+			}
+			if (state != TaskState.FAILED){
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Moves a forwarded task to its final state, or forgets it when the final state is null.
+	 */
+	void conclude(Runnable job, TaskState finalState){
+		boolean concluded = finalState == null ? states.remove(job, TaskState.FORWARDED)
+											   : states.replace(job, TaskState.FORWARDED, finalState);
+		if (concluded){
+			forwarded.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Marks an unknown task as {@link TaskState#COMPLETED}, e.g. when it was completed before a restart.
+	 */
+	void restore(Runnable job){
+		states.putIfAbsent(job, TaskState.COMPLETED);
+	}
+
+	/**
+	 * Forgets the task, unless it is forwarded again.
+	 */
+	void forget(Runnable job){
+		states.computeIfPresent(job, (key, state) -> state == TaskState.FORWARDED ? state : null);
+	}
+
+	/**
+	 * @return amount of tasks in {@link TaskState#FORWARDED} state.
+	 */
+	int forwarded(){
+		return forwarded.get();
+	}
+
+	/**
+	 * @return amount of tasks remembered in any state other than {@link TaskState#FORWARDED}.
+	 */
+	int concluded(){
+		return states.size() - forwarded.get();
+	}
+
+	/**
+	 * @return read-only view of the original jobs in {@link TaskState#FORWARDED} state.
+	 */
+	Set<Runnable> inFlight(){
+		return inFlight;
+	}
+
+	/**
+	 * @return the original jobs in {@link TaskState#FORWARDED} or {@link TaskState#COMPLETED} state, weakly consistent.
+	 */
+	Iterator<Runnable> forwardedOrCompleted(){
+		return states.entrySet()
+					 .stream()
+					 .filter(entry -> entry.getValue() != TaskState.FAILED)
+					 .map(Map.Entry::getKey)
+					 .iterator();
+	}
+
+	private final class InFlightView extends AbstractSet<Runnable> {
+
+		@Override
+		public boolean contains(Object job) {
+			return job != null && states.get(job) == TaskState.FORWARDED;
+		}
+
+		@Override
+		public Iterator<Runnable> iterator() {
+			return states.entrySet()
+						 .stream()
+						 .filter(entry -> entry.getValue() == TaskState.FORWARDED)
+						 .map(Map.Entry::getKey)
+						 .iterator();
+		}
+
+		@Override
+		public int size() {
+			return forwarded.get();
+		}
+	}
+}
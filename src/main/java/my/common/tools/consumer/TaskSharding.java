@@ -0,0 +1,152 @@
+package my.common.tools.consumer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits the tasks among the live nodes of a {@link ClaimStore} by consistent hashing, 
+ * so adding or removing a node moves only the tasks of its share.
+ * <p>
+ * A task is forwarded only by the node owning its key in the ring, and only after claiming it in the store: 
+ * while the nodes disagree on the ring (e.g. right after one joined), the claim keeps a task from being executed twice. 
+ * The claim is kept while the task is remembered, so another node does not execute it again 
+ * when the ring changes, and released when the task is forgotten. The ring is refreshed in every pulling cycle, 
+ * and only accessed by the distributor. The lease of this node is renewed by a thread of its own, at a third 
+ * of the lease, so long cycles, intervals or producer calls do not make the node look dead to the others.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class TaskSharding implements TaskLifecycleListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TaskSharding.class);
+
+	private static final int VIRTUAL_NODES = 64;
+
+	private final String nodeId;
+	private final ClaimStore store;
+	private final Function<? super Runnable, String> shardKey;
+
+	private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor();
+
+	private Set<String> members = Collections.emptySet();
+	private NavigableMap<Long, String> ring = new TreeMap<>();
+
+	/**
+	 * @param shardKey gives the key identifying a task in every node, or null if the task is not shared (always executed).
+	 */
+	TaskSharding(String nodeId, ClaimStore store, Function<? super Runnable, String> shardKey) {
+		this.nodeId = nodeId;
+		this.store = store;
+		this.shardKey = shardKey;
+		long period = Math.max(1, store.lease(TimeUnit.NANOSECONDS) / 3);
+		heartbeats.scheduleAtFixedRate(this::heartbeat, 0, period, TimeUnit.NANOSECONDS);
+	}
+
+	private void heartbeat(){
+		try {
+			store.heartbeat(nodeId);
+		} catch (RuntimeException e) {
+			LOGGER.error("Error renewing the lease of the node " + nodeId + ", retrying in the next heartbeat.", e);
+		}
+	}
+
+	/**
+	 * Rebuilds the ring if the live nodes changed.
+	 */
+	void refresh(){
+		try {
+			Set<String> live = new HashSet<>(store.liveNodes());
+			live.add(nodeId);
+			if (live.equals(members)){
+				return;
+			}
+			NavigableMap<Long, String> newRing = new TreeMap<>();
+			for (String member : live){
+				for (int i = 0; i < VIRTUAL_NODES; i++){
+					newRing.put(hash(member + '#' + i), member);
+				}
+			}
+			LOGGER.info("Sharding the tasks among the nodes {}.", live);
+			members = live;
+			ring = newRing;
+		} catch (RuntimeException e) {
+			LOGGER.error("Error refreshing the nodes, the previous ones are kept.", e);
+		}
+	}
+
+	/**
+	 * @return true if this node owns the task and claimed it, so it may be forwarded.
+	 */
+	boolean tryClaim(Runnable job){
+		String key = shardKey.apply(job);
+		if (key == null){
+			return true;
+		}
+		if (!nodeId.equals(owner(key))){
+			return false;
+		}
+		try {
+			return store.tryClaim(nodeId, key);
+		} catch (RuntimeException e) {
+			LOGGER.error("Error claiming the task " + key + ", it is not forwarded.", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Stops the heartbeats and leaves the ring, so the other nodes take the share of this one right away.
+	 */
+	void leave(){
+		heartbeats.shutdown();
+		try {
+			heartbeats.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		store.leave(nodeId);
+	}
+
+	@Override
+	public void taskForgotten(Runnable job) {
+		String key = shardKey.apply(job);
+		if (key != null){
+			store.release(nodeId, key);
+		}
+	}
+
+	private String owner(String key){
+		if (ring.isEmpty()){
+			return nodeId;
+		}
+		Map.Entry<Long, String> owner = ring.ceilingEntry(hash(key));
+		return owner == null ? ring.firstEntry().getValue() : owner.getValue();
+	}
+
+	/**
+	 * @return 64 bits FNV-1a of the UTF-8 bytes, mixed by the MurmurHash3 finalizer to spread the near keys.
+	 */
+	static long hash(String key){
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)){
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		return hash ^ (hash >>> 33);
+	}
+}
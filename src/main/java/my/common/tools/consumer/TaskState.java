@@ -0,0 +1,22 @@
+package my.common.tools.consumer;
+
+/**
+ * State of a task known by the consumer.
+ * 
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public enum TaskState {
+	
+	/** Forwarded to the consumers, waiting or executing. */
+	FORWARDED,
+	
+	/** Executed without errors, will not be executed again while remembered. */
+	COMPLETED,
+	
+	/** Executed with errors, it may be forwarded again (after the retry delay, if there is a {@link RetryPolicy}). */
+	FAILED,
+	
+	/** Failed more times than the {@link RetryPolicy} allows, will not be forwarded again until released. */
+	QUARANTINED;
+	
+}
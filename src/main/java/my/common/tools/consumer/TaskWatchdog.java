@@ -0,0 +1,143 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the executing tasks, concluding as timed out the ones executing past their timeout.
+ * <p>
+ * The timeouts are kept in a hashed timer wheel, advanced by a thread of its own: a task starting only 
+ * queues its timeout, and finishing only marks it cancelled, both without locks. The wheel is only touched by 
+ * its thread, which places the queued timeouts in the buckets of their deadlines and, at each tick, 
+ * expires the ones of the current bucket (the ones farther than a turn of the wheel waiting their rounds). 
+ * A task times out at most one tick after its deadline.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class TaskWatchdog {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TaskWatchdog.class);
+
+	private static final int WHEEL_SIZE = 512;
+	private static final long MIN_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long MAX_TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final long NO_DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final long defaultTimeoutNanos;
+	private final long tickNanos;
+	private final Consumer<TaskWrapper> expired;
+	private final Queue<Timeout> started = new ConcurrentLinkedQueue<>();
+	private final List<List<Timeout>> wheel = new ArrayList<>(WHEEL_SIZE);
+	private final long origin = System.nanoTime();
+	private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+
+	private long tick;
+
+	/**
+	 * @param defaultTimeoutNanos timeout of the tasks not implementing {@link TimedTask}, zero for no timeout.
+	 * @param expired receives the tasks concluded as timed out, in the thread of the watchdog.
+	 */
+	TaskWatchdog(long defaultTimeoutNanos, Consumer<TaskWrapper> expired) {
+		this.defaultTimeoutNanos = defaultTimeoutNanos;
+		this.tickNanos = defaultTimeoutNanos <= 0 ? NO_DEFAULT_TICK_NANOS 
+												  : Math.max(MIN_TICK_NANOS, Math.min(MAX_TICK_NANOS, defaultTimeoutNanos / 32));
+		this.expired = expired;
+		for (int i = 0; i < WHEEL_SIZE; i++){
+			wheel.add(new ArrayList<>());
+		}
+		ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Starts watching a task, it must be called by the thread executing it, right before the execution.
+	 * 
+	 * @return the timeout of the task, to be cancelled when it finishes, or null if it has no timeout.
+	 */
+	Timeout watch(TaskWrapper task){
+		Runnable job = task.originalJob();
+		long timeoutNanos = job instanceof TimedTask ? TimeUnit.MILLISECONDS.toNanos(((TimedTask) job).executionTimeoutMillis()) 
+													 : defaultTimeoutNanos;
+		if (timeoutNanos <= 0){
+			return null;
+		}
+		Timeout timeout = new Timeout(task, task.startedAt() + timeoutNanos);
+		started.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Stops watching, the tasks still executing no longer time out.
+	 */
+	void stop(){
+		ticker.shutdownNow();
+	}
+
+	private void advance(){
+		long currentTick = (System.nanoTime() - origin) / tickNanos;
+		Timeout timeout;
+		while ((timeout = started.poll()) != null){
+			if (timeout.task != null){
+				long deadlineTick = Math.max(tick, (timeout.deadline - origin + tickNanos - 1) / tickNanos);
+				timeout.rounds = (deadlineTick - tick) / WHEEL_SIZE;
+				wheel.get((int) (deadlineTick % WHEEL_SIZE)).add(timeout);
+			}
+		}
+		for (; tick <= currentTick; tick++){
+			expire(wheel.get((int) (tick % WHEEL_SIZE)));
+		}
+	}
+
+	/**
+	 * Expires the due timeouts of the bucket, compacting it to the ones still waiting.
+	 */
+	private void expire(List<Timeout> bucket){
+		int kept = 0;
+		for (int i = 0; i < bucket.size(); i++){
+			Timeout timeout = bucket.get(i);
+			TaskWrapper task = timeout.task;
+			if (task == null){
+				continue;
+			}
+			if (timeout.rounds > 0){
+				timeout.rounds--;
+				bucket.set(kept++, timeout);
+				continue;
+			}
+			try {
+				if (task.timedOut()){
+					expired.accept(task);
+				}
+			} catch (RuntimeException e) {
+				LOGGER.error("Error concluding the timed out task " + task + ".", e);
+			}
+		}
+		bucket.subList(kept, bucket.size()).clear();
+	}
+
+	/**
+	 * The deadline of an executing task, cancelled (releasing the task) when it finishes.
+	 */
+	static final class Timeout{
+		private final long deadline;
+		private volatile TaskWrapper task;
+		private long rounds;
+
+		private Timeout(TaskWrapper task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		void cancel(){
+			task = null;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package my.common.tools.consumer;
 
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
@@ -14,14 +15,33 @@ public class TaskWrapper implements Runnable {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(PeriodicConsumer.class);
 	
+	private static final int RUNNING = 0;
+	private static final int FINISHED = 1;
+	private static final int TIMED_OUT = 2;
+	private static final AtomicIntegerFieldUpdater<TaskWrapper> CONCLUSION = 
+			AtomicIntegerFieldUpdater.newUpdater(TaskWrapper.class, "conclusion");
+	
 	private final Runnable originalJob;
 	
-	private Optional<Consumer<TaskWrapper>> onCompleteAction;
+	private Consumer<TaskWrapper> onCompleteAction;
+	
+	private Consumer<TaskWrapper> onErrorAction;
+	
+	private final long obtainedAt;
+	private long forwardedAt;
+	private long startedAt;
+	private long finishedAt;
 	
-	private Optional<Consumer<TaskWrapper>> onErrorAction;
+	private volatile int conclusion;
+	private TaskWatchdog watchdog;
+	private TaskWatchdog.Timeout timeout;
+	private Thread runner;
+	private CompletableFuture<?> pending;
+	private CompletableFuture<?> asyncConclusion;
 	
-	private TaskWrapper(Runnable originalJob) {
+	private TaskWrapper(Runnable originalJob, long obtainedAt) {
 		this.originalJob = originalJob;
+		this.obtainedAt = obtainedAt;
 	}
 	
 	/**
@@ -30,7 +50,16 @@ public class TaskWrapper implements Runnable {
 	 * @return
 	 */
 	public static TaskWrapper create (Runnable tarefa){
-		return new TaskWrapper(tarefa);
+		return new TaskWrapper(tarefa, System.nanoTime());
+	}
+	
+	/**
+	 * Wraps a task obtained from the producer before now, e.g. staged in a {@link DispatchQueue}.
+	 * 
+	 * @param obtainedAt when the task was obtained, as in {@link System#nanoTime()}.
+	 */
+	static TaskWrapper create(Runnable tarefa, long obtainedAt){
+		return new TaskWrapper(tarefa, obtainedAt);
 	}
 	
 	/**
@@ -41,25 +70,181 @@ public class TaskWrapper implements Runnable {
 	 * @return o mesmo objeto "wrapper" que est� sendo definido para esta tarefa.
 	 */
 	public TaskWrapper onComplete(Consumer<TaskWrapper> completeAction) {
-		onCompleteAction = Optional.ofNullable(completeAction);
+		onCompleteAction = completeAction;
 		return this;
 	}
 	
 	public TaskWrapper onError(Consumer<TaskWrapper> errorAction) {
-		onErrorAction = Optional.ofNullable(errorAction);
+		onErrorAction = errorAction;
 		return this;
 	}
 	
 	@Override 
 	public void run() {
+		startedAt = System.nanoTime();
+		if (watchdog != null){
+			runner = Thread.currentThread();
+			timeout = watchdog.watch(this);
+		}
+		if (originalJob instanceof AsyncTask){
+			start((AsyncTask) originalJob);
+			return;
+		}
+		boolean failed = false;
 		try {
 			originalJob.run();
 		} catch (Exception exc) {
-			LOGGER.error("Error in JobWrapper execution.", exc);
-			onErrorAction.ifPresent(action -> action.accept(this));
+			failed = true;
+			if (conclusion != TIMED_OUT){
+				LOGGER.error("Error in JobWrapper execution.", exc);
+			}
+		}
+		if (watchdog != null){
+			detach(null);
+		}
+		finished(failed);
+	}
+	
+	/**
+	 * Starts an asynchronous task, concluding this wrapper when the returned stage completes.
+	 */
+	private void start(AsyncTask job) {
+		CompletableFuture<?> future;
+		try {
+			future = job.start().toCompletableFuture();
+		} catch (Exception exc) {
+			if (conclusion != TIMED_OUT){
+				LOGGER.error("Error in JobWrapper execution.", exc);
+			}
+			if (watchdog != null){
+				detach(null);
+			}
+			finished(true);
+			return;
+		}
+		if (watchdog != null){
+			detach(future);
+		}
+		asyncConclusion = future.whenComplete((result, error) -> {
+			if (error != null && conclusion != TIMED_OUT){
+				LOGGER.error("Error in JobWrapper execution.", error);
+			}
+			finished(error != null);
+		});
+	}
+	
+	/**
+	 * @return stage completed after the conclusion of the {@link AsyncTask} started by {@link #run()} in the current thread, 
+	 * or null if the task is not asynchronous or failed to start.
+	 */
+	CompletableFuture<?> asyncConclusion() {
+		return asyncConclusion;
+	}
+	
+	/**
+	 * Makes the execution of this task watched for its timeout, it must be called before the task is executed.
+	 */
+	void watchedBy(TaskWatchdog watchdog) {
+		this.watchdog = watchdog;
+	}
+	
+	/**
+	 * Concludes this task as timed out, interrupting the thread executing it (or cancelling the future of an {@link AsyncTask}). 
+	 * The execution, if it goes on, no longer concludes the task.
+	 * 
+	 * @return false if the task had already finished.
+	 */
+	synchronized boolean timedOut() {
+		if (!CONCLUSION.compareAndSet(this, RUNNING, TIMED_OUT)){
+			return false;
+		}
+		finishedAt = System.nanoTime();
+		if (runner != null){
+			runner.interrupt();
+		}
+		if (pending != null){
+			pending.cancel(true);
+		}
+		return true;
+	}
+	
+	/**
+	 * Detaches the executing thread, so it is not interrupted after leaving this task 
+	 * (nor keeps the interruption done when this task timed out).
+	 * 
+	 * @param future the future of an {@link AsyncTask} started, cancelled by the timeout from now on, or null.
+	 */
+	private synchronized void detach(CompletableFuture<?> future) {
+		runner = null;
+		if (conclusion == TIMED_OUT){
+			Thread.interrupted();
+			if (future != null){
+				future.cancel(true);
+			}
+		} else {
+			pending = future;
+		}
+	}
+	
+	void forwarded() {
+		forwardedAt = System.nanoTime();
+	}
+	
+	/**
+	 * Marks the start of an execution done outside of {@link #run()}, e.g. by a {@link BulkHandler}.
+	 */
+	void started() {
+		startedAt = System.nanoTime();
+	}
+	
+	/**
+	 * Concludes an execution done outside of {@link #run()}, calling the error or the complete action,
+	 * unless the task was already concluded (e.g. timed out).
+	 */
+	void finished(boolean failed) {
+		if (!CONCLUSION.compareAndSet(this, RUNNING, FINISHED)){
 			return;
 		}
-		onCompleteAction.ifPresent(action -> action.accept(this));
+		if (timeout != null){
+			timeout.cancel();
+		}
+		finishedAt = System.nanoTime();
+		Consumer<TaskWrapper> action = failed ? onErrorAction : onCompleteAction;
+		if (action != null){
+			action.accept(this);
+		}
+	}
+	
+	/**
+	 * @return when the task was obtained from the producer, as in {@link System#nanoTime()}.
+	 */
+	public long obtainedAt() {
+		return obtainedAt;
+	}
+	
+	/**
+	 * @return when the task was forwarded to the consumers, as in {@link System#nanoTime()}, or zero if not forwarded.
+	 */
+	public long forwardedAt() {
+		return forwardedAt;
+	}
+	
+	/**
+	 * @return when the execution started, as in {@link System#nanoTime()}, or zero if not started.
+	 */
+	public long startedAt() {
+		return startedAt;
+	}
+	
+	/**
+	 * @return when the execution finished, as in {@link System#nanoTime()}, or zero if not finished.
+	 */
+	public long finishedAt() {
+		return finishedAt;
+	}
+
+	Runnable originalJob() {
+		return originalJob;
 	}
 
 	@Override
@@ -0,0 +1,81 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Remembers the concluded tasks for a fixed time after their conclusion.
+ * <p>
+ * As the time to live is the same for every task, the queue is ordered by expiration, 
+ * and only its expired head is examined, by one thread at a time.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class TimeToLiveMemory implements CompletedTaskMemory {
+
+	private final long timeToLiveNanos;
+	private final ConcurrentHashMap<Runnable, Long> expirations = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean expiring = new AtomicBoolean();
+
+	TimeToLiveMemory(long timeToLiveNanos) {
+		this.timeToLiveNanos = timeToLiveNanos;
+	}
+
+	@Override
+	public void remembered(Runnable task, Consumer<Runnable> evicted) {
+		long now = System.nanoTime();
+		long expiration = now + timeToLiveNanos;
+		expirations.put(task, expiration);
+		order.add(new Entry(task, expiration));
+		expire(now, evicted);
+	}
+
+	@Override
+	public void returned(Runnable task) {
+	}
+
+	@Override
+	public void cycleFinished(Consumer<Runnable> evicted) {
+		expire(System.nanoTime(), evicted);
+	}
+
+	private void expire(long now, Consumer<Runnable> evicted){
+		if (!expiring.compareAndSet(false, true)){
+			return;
+		}
+		try {
+			Entry head;
+			while ((head = order.peek()) != null){
+				Long expiration = expirations.get(head.task);
+				boolean current = expiration != null && expiration == head.expiration;
+				if (current && head.expiration - now > 0){
+					return;
+				}
+				order.poll();
+				if (current && expirations.remove(head.task, expiration)){
+					evicted.accept(head.task);
+				}
+			}
+		} finally {
+			expiring.set(false);
+		}
+	}
+
+	@Override
+	public int size() {
+		return expirations.size();
+	}
+
+	private static final class Entry {
+		private final Runnable task;
+		private final long expiration;
+
+		private Entry(Runnable task, long expiration) {
+			this.task = task;
+			this.expiration = expiration;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package my.common.tools.consumer;
+
+/**
+ * Task defining its own execution timeout, overriding the one defined in the consumer.
+ * <p>
+ * A task executing past its timeout is interrupted and concluded as failed, releasing its slot,
+ * so it may be forwarded again while the interrupted execution (if it ignores the interruption) goes on.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public interface TimedTask extends Runnable {
+
+	/**
+	 * @return the longest time, in milliseconds, this task may execute, zero or less if it has no timeout.
+	 */
+	long executionTimeoutMillis();
+}
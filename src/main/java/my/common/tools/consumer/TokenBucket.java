@@ -0,0 +1,53 @@
+package my.common.tools.consumer;
+
+/**
+ * Token bucket refilled continuously (computed on access, without a timer), not thread safe.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class TokenBucket {
+
+	private final double nanosPerToken;
+	private final double capacity;
+
+	private double tokens;
+	private long refilledAt;
+
+	TokenBucket(double permitsPerSecond, int burst, long now) {
+		this.nanosPerToken = 1_000_000_000d / permitsPerSecond;
+		this.capacity = burst;
+		this.tokens = burst;
+		this.refilledAt = now;
+	}
+
+	/**
+	 * @return zero if there is a token, otherwise the nanoseconds until the next one.
+	 */
+	long nanosUntilToken(long now){
+		refill(now);
+		return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * nanosPerToken);
+	}
+
+	/**
+	 * Takes a token, that must be available as told by {@link #nanosUntilToken(long)}.
+	 */
+	void take(){
+		tokens -= 1;
+	}
+
+	/**
+	 * @return true if the bucket was refilled up to its capacity, so forgetting it changes nothing.
+	 */
+	boolean isFull(long now){
+		refill(now);
+		return tokens >= capacity;
+	}
+
+	private void refill(long now){
+		long elapsed = now - refilledAt;
+		if (elapsed > 0){
+			tokens = Math.min(capacity, tokens + elapsed / nanosPerToken);
+			refilledAt = now;
+		}
+	}
+}
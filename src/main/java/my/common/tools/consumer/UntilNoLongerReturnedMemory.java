@@ -0,0 +1,75 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Remembers the concluded tasks while the producer keeps returning them.
+ * <p>
+ * Each job is stamped with the last cycle in which it was concluded or returned. At the end of a cycle, 
+ * the entries at the head of the queue that were not stamped in the cycle are forgotten, and the 
+ * stamped ones go back to the tail; the amount sent back is bounded by the amount of stamps in the cycle.
+ * Stamping a returned job does not allocate.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class UntilNoLongerReturnedMemory implements CompletedTaskMemory {
+
+	private final ConcurrentHashMap<Runnable, Stamp> stamps = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Runnable> order = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger returnedInCycle = new AtomicInteger();
+
+	private volatile long cycle;
+
+	@Override
+	public void remembered(Runnable job, Consumer<Runnable> evicted) {
+		if (stamps.put(job, new Stamp(cycle)) == null){
+			order.add(job);
+		}
+	}
+
+	@Override
+	public void returned(Runnable job) {
+		Stamp stamp = stamps.get(job);
+		if (stamp != null){
+			stamp.cycle = cycle;
+			returnedInCycle.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void cycleFinished(Consumer<Runnable> evicted) {
+		long finished = cycle;
+		int budget = returnedInCycle.getAndSet(0) + 1;
+		cycle = finished + 1;
+
+		Runnable job;
+		while (budget > 0 && (job = order.poll()) != null){
+			Stamp stamp = stamps.get(job);
+			if (stamp == null){
+				continue;
+			}
+			if (stamp.cycle < finished && stamps.remove(job, stamp)){
+				evicted.accept(job);
+				continue;
+			}
+			order.add(job);
+			budget--;
+		}
+	}
+
+	@Override
+	public int size() {
+		return stamps.size();
+	}
+
+	private static final class Stamp {
+		private volatile long cycle;
+
+		private Stamp(long cycle) {
+			this.cycle = cycle;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package my.common.tools.consumer;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the consumers executor for the virtual thread mode.
+ * <p>
+ * On Java 21 or later, each task runs in its own virtual thread, and a semaphore limits how many of them 
+ * execute at the same time (the threads beyond the limit wait, parked, without holding a platform thread).
+ * The virtual threads API is looked up by reflection, so the library still runs on Java 8: on older versions
+ * a fixed pool of platform threads with the same limit is used, as before.
+ *
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+final class VirtualThreads {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @param maxConcurrency maximum amount of tasks executing at the same time.
+	 * @return an executor of virtual threads, or of platform threads when they are not available.
+	 */
+	static ExecutorService executor(int maxConcurrency){
+		if (maxConcurrency <= 0){
+			throw new IllegalArgumentException("The max concurrency must be positive. Informed: " + maxConcurrency);
+		}
+		ExecutorService virtualThreads = perTaskExecutor();
+		if (virtualThreads == null){
+			LOGGER.warn("Virtual threads are not available in this Java version, using {} platform threads.", maxConcurrency);
+			return Executors.newFixedThreadPool(maxConcurrency);
+		}
+		return new ConcurrencyLimitedExecutor(virtualThreads, maxConcurrency);
+	}
+
+	private static ExecutorService perTaskExecutor(){
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Executor limiting how many tasks of the delegate execute at the same time.
+	 */
+	static final class ConcurrencyLimitedExecutor extends AbstractExecutorService {
+		private final ExecutorService delegate;
+		private final Semaphore permits;
+
+		ConcurrencyLimitedExecutor(ExecutorService delegate, int maxConcurrency) {
+			this.delegate = delegate;
+			this.permits = new Semaphore(maxConcurrency);
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			delegate.execute(() -> {
+				permits.acquireUninterruptibly();
+				try {
+					command.run();
+				} finally {
+					permits.release();
+				}
+			});
+		}
+
+		@Override
+		public void shutdown() {
+			delegate.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
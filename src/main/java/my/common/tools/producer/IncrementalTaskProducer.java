@@ -0,0 +1,24 @@
+package my.common.tools.producer;
+
+/**
+ * Producer returning only the changes of its pending tasks since the last pull, instead of all of them
+ * (as the {@link TaskProducer} does), so each pull costs as much as the changes, not as the whole backlog.
+ * <p>
+ * The consumer keeps the tasks it could not forward yet, and forwards again the failed ones,
+ * so a task is returned once, until it changes or is retracted.
+ * 
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+@FunctionalInterface
+public interface IncrementalTaskProducer {
+
+	/**
+	 * Get the changes of the pending Jobs after the cursor.
+	 * 
+	 * @param cursor the cursor of the last changes returned, or the initial one informed to the consumer.
+	 * @param demand amount of new/changed jobs the consumer will accept ({@link Integer#MAX_VALUE} when there is no limit),
+	 * the cursor returned must not skip the ones left out. The retractions are not limited.
+	 * @return the changes, never null.
+	 */
+	TaskChanges changesSince(long cursor, int demand);
+}
@@ -0,0 +1,57 @@
+package my.common.tools.producer;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+
+/**
+ * Changes of the pending tasks of an {@link IncrementalTaskProducer} since a cursor.
+ * 
+ * @author <a href=mailto:m.eduardo5@gmail.com>Mario Eduardo Giolo</a>
+ */
+public final class TaskChanges {
+
+	private final long cursor;
+	private final Collection<? extends Runnable> upserted;
+	private final Collection<? extends Runnable> retracted;
+
+	private TaskChanges(long cursor, Collection<? extends Runnable> upserted, Collection<? extends Runnable> retracted) {
+		this.cursor = cursor;
+		this.upserted = upserted;
+		this.retracted = retracted;
+	}
+
+	/**
+	 * @param cursor position of the last change returned, informed in the next call to the producer.
+	 * @param upserted the new tasks, and the changed ones (executed again, even if already concluded).
+	 * @param retracted the tasks no longer pending (e.g. deleted or concluded elsewhere), applied before the upserted ones.
+	 * @return the changes.
+	 */
+	public static TaskChanges of(long cursor, Collection<? extends Runnable> upserted, Collection<? extends Runnable> retracted){
+		return new TaskChanges(cursor, Objects.requireNonNull(upserted, "upserted"), Objects.requireNonNull(retracted, "retracted"));
+	}
+
+	/**
+	 * @return no change, keeping the cursor.
+	 */
+	public static TaskChanges none(long cursor){
+		return new TaskChanges(cursor, Collections.emptyList(), Collections.emptyList());
+	}
+
+	public long cursor() {
+		return cursor;
+	}
+
+	public Collection<? extends Runnable> upserted() {
+		return upserted;
+	}
+
+	public Collection<? extends Runnable> retracted() {
+		return retracted;
+	}
+
+	@Override
+	public String toString() {
+		return "TaskChanges [cursor=" + cursor + ", upserted=" + upserted.size() + ", retracted=" + retracted.size() + "]";
+	}
+}
@@ -1,5 +1,6 @@
 package my.common.tools.producer;
 import java.util.Iterator;
+import java.util.Set;
 
 /**
  * 
@@ -15,4 +16,23 @@ public interface TaskProducer {
 	 */
 	public Iterator<Runnable> nextTasks();
 
+	/**
+	 * Get the next Jobs to be processed, knowing how many of them the consumer will accept.
+	 * <p>
+	 * Producers that fetch the jobs from a store may use the hints to fetch only what will be dispatched,
+	 * the consumer still discards the duplicated jobs and the ones exceeding the demand.
+	 * Completed jobs must still be either returned while pending or checked in the excluded view, 
+	 * as the consumer relies on them to remember the conclusion: checking a job in the view counts as returning it, 
+	 * so a producer may skip the excluded jobs without them taking the demand.
+	 * <p>
+	 * By default, ignores the hints and delegates to {@link #nextTasks()}.
+	 * 
+	 * @param demand amount of jobs the consumer will accept ({@link Integer#MAX_VALUE} when there is no limit).
+	 * @param excluded read-only view of the jobs the consumer would discard: waiting/executing or remembered as completed.
+	 * @return
+	 */
+	public default Iterator<Runnable> nextTasks(int demand, Set<Runnable> excluded){
+		return nextTasks();
+	}
+
 }
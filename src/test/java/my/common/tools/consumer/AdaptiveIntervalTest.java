@@ -0,0 +1,47 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveIntervalTest {
+
+	private static final long MINIMO = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long MAXIMO = TimeUnit.MILLISECONDS.toNanos(1000);
+
+	@Test
+	public void voltaAoMinimoQuandoACapacidadeLivreEhPreenchida(){
+		AdaptiveInterval intervalo = AdaptiveInterval.between(10, 1000, TimeUnit.MILLISECONDS);
+		intervalo.nextDelay(0, 5, 0);
+		intervalo.nextDelay(0, 5, 0);
+
+		Assert.assertEquals(MINIMO, intervalo.nextDelay(5, 5, 0));
+	}
+
+	@Test
+	public void dobraAteOMaximoQuandoNadaEhRetornado(){
+		AdaptiveInterval intervalo = AdaptiveInterval.between(10, 1000, TimeUnit.MILLISECONDS);
+
+		Assert.assertEquals(2 * MINIMO, intervalo.nextDelay(0, 5, 0));
+		Assert.assertEquals(4 * MINIMO, intervalo.nextDelay(0, 5, 0));
+		for (int i = 0; i < 10; i++){
+			intervalo.nextDelay(0, 5, 0);
+		}
+		Assert.assertEquals(MAXIMO, intervalo.nextDelay(0, 5, 0));
+	}
+
+	@Test
+	public void naoConsultaOProdutorMaisRapidoDoQueEleResponde(){
+		AdaptiveInterval intervalo = AdaptiveInterval.between(10, 1000, TimeUnit.MILLISECONDS);
+		long tempoDoProdutor = TimeUnit.MILLISECONDS.toNanos(300);
+
+		Assert.assertEquals(tempoDoProdutor, intervalo.nextDelay(5, 5, tempoDoProdutor));
+		Assert.assertEquals(MAXIMO, intervalo.nextDelay(5, 5, TimeUnit.SECONDS.toNanos(5)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recusaMinimoMaiorQueOMaximo(){
+		AdaptiveInterval.between(10, 1, TimeUnit.SECONDS);
+	}
+}
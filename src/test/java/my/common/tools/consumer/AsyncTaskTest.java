@@ -0,0 +1,155 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncTaskTest {
+
+	private static final int TOTAL_DE_TAREFAS = 50;
+
+	private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+
+	@Test
+	public void mantemMuitasTarefasEmAndamentoComPoucasThreads() throws InterruptedException{
+		AtomicInteger emAndamento = new AtomicInteger();
+		AtomicInteger maximoEmAndamento = new AtomicInteger();
+		Map<TaskState, AtomicInteger> finais = new ConcurrentHashMap<>();
+		CountDownLatch concluidas = new CountDownLatch(TOTAL_DE_TAREFAS);
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < TOTAL_DE_TAREFAS; id++){
+			boolean falha = id == 0;
+			tarefas.add(new TarefaAssincrona(id, () -> {
+				maximoEmAndamento.accumulateAndGet(emAndamento.incrementAndGet(), Math::max);
+				CompletableFuture<Void> resultado = new CompletableFuture<>();
+				io.schedule(() -> {
+					emAndamento.decrementAndGet();
+					if (falha){
+						resultado.completeExceptionally(new IllegalStateException("Falha simulada"));
+					} else {
+						resultado.complete(null);
+					}
+				}, 200, TimeUnit.MILLISECONDS);
+				return resultado;
+			}));
+		}
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(tarefas::iterator)
+						   		.consumerService(Executors.newFixedThreadPool(1))
+						   		.timeInterval(1, TimeUnit.SECONDS)
+						   		.batchAmount(TOTAL_DE_TAREFAS)
+						   		.listener(new TaskLifecycleListener() {
+									@Override
+									public void taskFinished(TaskWrapper task, TaskState finalState) {
+										finais.computeIfAbsent(finalState, estado -> new AtomicInteger()).incrementAndGet();
+										concluidas.countDown();
+									}
+								})
+						   		.create()
+						   		.distributeTheTasks();
+
+		Assert.assertTrue("Nem todas as tarefas foram concluidas.", concluidas.await(5, TimeUnit.SECONDS));
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+		io.shutdown();
+
+		Assert.assertEquals(TOTAL_DE_TAREFAS, maximoEmAndamento.get());
+		Assert.assertEquals(TOTAL_DE_TAREFAS - 1, finais.get(TaskState.COMPLETED).get());
+		Assert.assertEquals(1, finais.get(TaskState.FAILED).get());
+	}
+
+	@Test
+	public void serializaOsEstagiosDasTarefasComAMesmaChave() throws InterruptedException{
+		int total = 5;
+		AtomicInteger emAndamento = new AtomicInteger();
+		AtomicInteger maximoEmAndamento = new AtomicInteger();
+		CountDownLatch concluidas = new CountDownLatch(total);
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < total; id++){
+			tarefas.add(new TarefaAssincrona(id, () -> {
+				maximoEmAndamento.accumulateAndGet(emAndamento.incrementAndGet(), Math::max);
+				CompletableFuture<Void> resultado = new CompletableFuture<>();
+				io.schedule(() -> {
+					emAndamento.decrementAndGet();
+					resultado.complete(null);
+				}, 50, TimeUnit.MILLISECONDS);
+				return resultado;
+			}));
+		}
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(tarefas::iterator)
+						   		.consumerService(Executors.newFixedThreadPool(2))
+						   		.timeInterval(1, TimeUnit.SECONDS)
+						   		.batchAmount(total)
+						   		.keyAffinity(tarefa -> "mesma chave")
+						   		.listener(new TaskLifecycleListener() {
+									@Override
+									public void taskFinished(TaskWrapper task, TaskState finalState) {
+										concluidas.countDown();
+									}
+								})
+						   		.create()
+						   		.distributeTheTasks();
+
+		Assert.assertTrue("Nem todas as tarefas foram concluidas.", concluidas.await(5, TimeUnit.SECONDS));
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+		io.shutdown();
+
+		Assert.assertEquals(1, maximoEmAndamento.get());
+	}
+
+	@Test
+	public void cancelaAFutureDaTarefaExpirada() throws InterruptedException{
+		CompletableFuture<Void> resultado = new CompletableFuture<>();
+		CountDownLatch expirada = new CountDownLatch(1);
+		TaskWatchdog vigia = new TaskWatchdog(TimeUnit.MILLISECONDS.toNanos(30), tarefa -> expirada.countDown());
+		TaskWrapper tarefa = TaskWrapper.create(new TarefaAssincrona(1, () -> resultado));
+		tarefa.watchedBy(vigia);
+
+		tarefa.run();
+
+		Assert.assertTrue(expirada.await(5, TimeUnit.SECONDS));
+		vigia.stop();
+		Assert.assertTrue(resultado.isCancelled());
+	}
+
+	private static final class TarefaAssincrona implements AsyncTask{
+		private final int id;
+		private final Supplier<CompletionStage<?>> inicio;
+
+		private TarefaAssincrona(int id, Supplier<CompletionStage<?>> inicio) {
+			this.id = id;
+			this.inicio = inicio;
+		}
+
+		@Override
+		public CompletionStage<?> start() {
+			return inicio.get();
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TarefaAssincrona && ((TarefaAssincrona) obj).id == id;
+		}
+	}
+}
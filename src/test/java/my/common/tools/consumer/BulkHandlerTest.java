@@ -0,0 +1,106 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+
+public class BulkHandlerTest {
+
+	@Test
+	public void executaEmLotesConcluindoCadaTarefa() throws InterruptedException{
+		List<Runnable> tarefas = tarefas(25);
+		List<Integer> tamanhosDosLotes = new CopyOnWriteArrayList<>();
+		Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+		Runnable tarefaComErro = tarefas.get(3);
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(tarefas::iterator)
+						   		.consumerService(Executors.newFixedThreadPool(2))
+						   		.timeInterval(20, TimeUnit.MILLISECONDS)
+						   		.bulkHandler(lote -> {
+						   			tamanhosDosLotes.add(lote.size());
+						   			lote.forEach(tarefa -> execucoes.computeIfAbsent(((TarefaDeTeste) tarefa).getId(), id -> new AtomicInteger())
+						   															.incrementAndGet());
+						   			return lote.contains(tarefaComErro) ? Collections.singleton(tarefaComErro) : Collections.emptyList();
+						   		}, 10, 30, TimeUnit.MILLISECONDS)
+						   		.create()
+						   		.distributeTheTasks();
+		Thread.sleep(300);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(Integer.valueOf(10), tamanhosDosLotes.get(0));
+		tamanhosDosLotes.forEach(tamanho -> Assert.assertTrue(tamanho <= 10));
+		Assert.assertEquals(25, execucoes.size());
+		Assert.assertTrue(execucoes.get(3).get() > 1);
+		execucoes.forEach((id, vezes) -> Assert.assertTrue("Tarefa executada mais de uma vez: " + id, id == 3 || vezes.get() == 1));
+	}
+
+	@Test
+	public void agrupaOsLotesPelaChave() throws InterruptedException{
+		List<Runnable> tarefas = tarefas(20);
+		List<List<Runnable>> lotes = new CopyOnWriteArrayList<>();
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(tarefas::iterator)
+						   		.consumerService(Executors.newFixedThreadPool(2))
+						   		.timeInterval(20, TimeUnit.MILLISECONDS)
+						   		.bulkHandler(BulkHandler.allOrNothing(lote -> lotes.add(new ArrayList<>(lote))), 100, 10, TimeUnit.MILLISECONDS)
+						   		.batchGroupingBy(tarefa -> ((TarefaDeTeste) tarefa).getId() % 2)
+						   		.create()
+						   		.distributeTheTasks();
+		Thread.sleep(200);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(2, lotes.size());
+		for (List<Runnable> lote : lotes){
+			Assert.assertEquals(10, lote.size());
+			int paridade = ((TarefaDeTeste) lote.get(0)).getId() % 2;
+			lote.forEach(tarefa -> Assert.assertEquals(paridade, ((TarefaDeTeste) tarefa).getId() % 2));
+		}
+	}
+
+	@Test
+	public void recusaTempoLimiteOuAfinidadePorChave(){
+		BulkHandler manipulador = BulkHandler.allOrNothing(lote -> {});
+		for (int combinacao = 0; combinacao < 2; combinacao++){
+			PeriodicConsumer.ConsumerBuilder construtor = 
+					PeriodicConsumer.of()
+									.producer(Collections::emptyIterator)
+									.consumerService(Executors.newSingleThreadExecutor())
+									.timeInterval(20, TimeUnit.MILLISECONDS)
+									.bulkHandler(manipulador, 10, 10, TimeUnit.MILLISECONDS);
+			if (combinacao == 0){
+				construtor.executionTimeout(1, TimeUnit.SECONDS);
+			} else {
+				construtor.keyAffinity();
+			}
+			try {
+				construtor.create();
+				Assert.fail("Combinacao aceita: " + combinacao);
+			} catch (IllegalArgumentException e) {
+				Assert.assertTrue(e.getMessage().contains("bulk handler"));
+			}
+		}
+	}
+
+	private static List<Runnable> tarefas(int quantidade){
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < quantidade; id++){
+			tarefas.add(TarefaDeTeste.id(id));
+		}
+		return tarefas;
+	}
+}
@@ -0,0 +1,171 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+import my.common.tools.producer.TaskProducer;
+
+public class CompletedTaskMemoryTest {
+
+	private final List<Runnable> esquecidas = new ArrayList<>();
+
+	@Test
+	public void esqueceTarefasNaoMaisRetornadasPeloProdutor(){
+		CompletedTaskMemory memoria = CompletedTaskMemory.untilNoLongerReturned();
+		Runnable retornada = tarefa(1);
+		Runnable naoRetornada = tarefa(2);
+		memoria.remembered(retornada, esquecidas::add);
+		memoria.remembered(naoRetornada, esquecidas::add);
+		memoria.cycleFinished(esquecidas::add);
+
+		memoria.returned(retornada);
+		memoria.cycleFinished(esquecidas::add);
+
+		Assert.assertEquals(Arrays.asList(naoRetornada), esquecidas);
+		Assert.assertEquals(1, memoria.size());
+	}
+
+	@Test
+	public void produtorQuePulaAsExcluidasNaoGastaADemandaComAsConcluidas() throws InterruptedException{
+		Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+		List<Runnable> pendentes = tarefasContadas(10, execucoes);
+		TaskProducer produtor = new TaskProducer() {
+			@Override
+			public Iterator<Runnable> nextTasks() {
+				return pendentes.iterator();
+			}
+
+			@Override
+			public Iterator<Runnable> nextTasks(int demanda, Set<Runnable> excluidas) {
+				return pendentes.stream()
+								.filter(tarefa -> !excluidas.contains(tarefa))
+								.limit(demanda)
+								.iterator();
+			}
+		};
+
+		executaAteConcluir(produtor, pendentes.size(), execucoes);
+
+		Assert.assertEquals("Produtor sem tarefas novas dentro da demanda.", pendentes.size(), execucoes.size());
+		execucoes.forEach((id, vezes) -> Assert.assertEquals("Tarefa executada mais de uma vez: " + id, 1, vezes.get()));
+	}
+
+	@Test
+	public void naoEsqueceAsConcluidasNaoVistasNoCicloLimitadoPelaDemanda() throws InterruptedException{
+		Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+		List<Runnable> pendentes = tarefasContadas(10, execucoes);
+		AtomicInteger rotacao = new AtomicInteger();
+		TaskProducer produtor = () -> {
+			List<Runnable> rotacionadas = new ArrayList<>(pendentes);
+			Collections.rotate(rotacionadas, rotacao.addAndGet(3));
+			return rotacionadas.iterator();
+		};
+
+		executaAteConcluir(produtor, pendentes.size(), execucoes);
+
+		Assert.assertEquals(pendentes.size(), execucoes.size());
+		execucoes.forEach((id, vezes) -> Assert.assertEquals("Tarefa executada mais de uma vez: " + id, 1, vezes.get()));
+	}
+
+	@Test
+	public void esqueceTarefasExpiradas() throws InterruptedException{
+		CompletedTaskMemory memoria = CompletedTaskMemory.timeToLive(500, TimeUnit.MILLISECONDS);
+		Runnable expirada = tarefa(1);
+		memoria.remembered(expirada, esquecidas::add);
+		memoria.cycleFinished(esquecidas::add);
+		Assert.assertTrue(esquecidas.isEmpty());
+
+		Thread.sleep(600);
+		memoria.cycleFinished(esquecidas::add);
+
+		Assert.assertEquals(Arrays.asList(expirada), esquecidas);
+		Assert.assertEquals(0, memoria.size());
+	}
+
+	@Test
+	public void esqueceAMenosRecentementeRetornadaAoAtingirOLimite(){
+		CompletedTaskMemory memoria = CompletedTaskMemory.maxEntries(2);
+		Runnable primeira = tarefa(1);
+		Runnable segunda = tarefa(2);
+		memoria.remembered(primeira, esquecidas::add);
+		memoria.remembered(segunda, esquecidas::add);
+		memoria.returned(primeira);
+
+		memoria.remembered(tarefa(3), esquecidas::add);
+
+		Assert.assertEquals(Arrays.asList(segunda), esquecidas);
+		Assert.assertEquals(2, memoria.size());
+	}
+
+	@Test
+	public void lembraApenasOsIdsEnquantoRetornados(){
+		for (boolean foraDaHeap : new boolean[]{false, true}){
+			CompactTaskMemory memoria = (CompactTaskMemory) CompletedTaskMemory.compact(
+					tarefa -> ((PeriodicConsumerTest.TarefaDeTeste) tarefa).getId(), foraDaHeap);
+			for (int id = 0; id < 3000; id++){
+				memoria.remembered(tarefa(id), esquecidas::add);
+			}
+			memoria.cycleFinished(esquecidas::add);
+			Assert.assertEquals(3000, memoria.size());
+
+			for (int ciclo = 0; ciclo < 100; ciclo++){
+				for (int id = 0; id < 100; id++){
+					Assert.assertTrue(memoria.returnedIfRemembered(tarefa(id)));
+				}
+				memoria.cycleFinished(esquecidas::add);
+			}
+
+			Assert.assertEquals(100, memoria.size());
+			Assert.assertTrue(memoria.returnedIfRemembered(tarefa(99)));
+			Assert.assertFalse(memoria.returnedIfRemembered(tarefa(100)));
+			Assert.assertTrue(esquecidas.isEmpty());
+		}
+	}
+
+	private static Runnable tarefa(int id){
+		return PeriodicConsumerTest.TarefaDeTeste.id(id);
+	}
+
+	private static List<Runnable> tarefasContadas(int total, Map<Integer, AtomicInteger> execucoes){
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < total; id++){
+			int idDaTarefa = id;
+			tarefas.add(TarefaDeTeste.id(id)
+									 .adicionaPasso(() -> execucoes.computeIfAbsent(idDaTarefa, chave -> new AtomicInteger()).incrementAndGet())
+									 .comTempoDeExecucao(0, TimeUnit.MILLISECONDS));
+		}
+		return tarefas;
+	}
+
+	/**
+	 * Consome as tarefas sempre pendentes no produtor, com capacidade menor que o total, por mais alguns ciclos depois de executadas.
+	 */
+	private static void executaAteConcluir(TaskProducer produtor, int total, Map<Integer, AtomicInteger> execucoes) throws InterruptedException{
+		PeriodicConsumer consumidor = PeriodicConsumer.of()
+													  .producer(produtor)
+													  .consumerService(Executors.newFixedThreadPool(2))
+													  .timeInterval(5, TimeUnit.MILLISECONDS)
+													  .batchAmount(2)
+													  .completedTaskMemory(CompletedTaskMemory.untilNoLongerReturned())
+													  .create()
+													  .distributeTheTasks();
+		for (int espera = 0; espera < 100 && execucoes.size() < total; espera++){
+			Thread.sleep(10);
+		}
+		Thread.sleep(200);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,139 @@
+package my.common.tools.consumer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+
+public class CompletionJournalTest {
+
+	private static final Function<Runnable, String> CHAVE = tarefa -> String.format("tarefa-%04d", ((TarefaDeTeste) tarefa).getId());
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	@Test
+	public void recuperaAsTarefasConcluidasAoReabrir() throws IOException{
+		Path arquivo = pasta.getRoot().toPath().resolve("concluidas.journal");
+		try (CompletionJournal journal = CompletionJournal.open(arquivo, CHAVE)) {
+			journal.completed(TarefaDeTeste.id(1));
+			journal.completed(TarefaDeTeste.id(2));
+			journal.forgotten(TarefaDeTeste.id(2));
+		}
+
+		try (CompletionJournal journal = CompletionJournal.open(arquivo, CHAVE)) {
+			Assert.assertEquals(1, journal.size());
+			Assert.assertTrue(journal.recovered(TarefaDeTeste.id(1)));
+			Assert.assertFalse(journal.recovered(TarefaDeTeste.id(1)));
+			Assert.assertFalse(journal.recovered(TarefaDeTeste.id(2)));
+		}
+	}
+
+	@Test
+	public void esqueceAsRecuperadasNaoRetornadasNoPrimeiroCiclo() throws IOException{
+		Path arquivo = pasta.getRoot().toPath().resolve("concluidas.journal");
+		try (CompletionJournal journal = CompletionJournal.open(arquivo, CHAVE)) {
+			journal.completed(TarefaDeTeste.id(1));
+			journal.completed(TarefaDeTeste.id(2));
+		}
+		try (CompletionJournal journal = CompletionJournal.open(arquivo, CHAVE)) {
+			Assert.assertTrue(journal.recovered(TarefaDeTeste.id(1)));
+			journal.cycleFinished(false);
+			Assert.assertEquals(2, journal.size());
+			journal.cycleFinished(true);
+			Assert.assertEquals(1, journal.size());
+		}
+
+		try (CompletionJournal journal = CompletionJournal.open(arquivo, CHAVE)) {
+			Assert.assertEquals(1, journal.size());
+			Assert.assertTrue(journal.recovered(TarefaDeTeste.id(1)));
+		}
+	}
+
+	@Test
+	public void compactaQuandoAsEntradasSaoObsoletas() throws IOException{
+		Path arquivo = pasta.getRoot().toPath().resolve("concluidas.journal");
+		try (CompletionJournal journal = CompletionJournal.open(arquivo, CHAVE)) {
+			for (int id = 0; id < 5000; id++){
+				journal.completed(TarefaDeTeste.id(id));
+			}
+			for (int id = 10; id < 5000; id++){
+				journal.forgotten(TarefaDeTeste.id(id));
+			}
+			journal.cycleFinished(true);
+		}
+
+		byte[] conteudo = Files.readAllBytes(arquivo);
+		int tamanhoDoRegistro = 3 + "tarefa-0000".length();
+		Assert.assertNotEquals(0, conteudo[9 * tamanhoDoRegistro]);
+		Assert.assertEquals(0, conteudo[10 * tamanhoDoRegistro]);
+		try (CompletionJournal journal = CompletionJournal.open(arquivo, CHAVE)) {
+			Assert.assertEquals(10, journal.size());
+		}
+	}
+
+	@Test
+	public void naoExecutaNovamenteAsTarefasConcluidasAntesDeReiniciar() throws InterruptedException{
+		Path arquivo = pasta.getRoot().toPath().resolve("concluidas.journal");
+		AtomicInteger execucoes = new AtomicInteger();
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 1; id <= 5; id++){
+			tarefas.add(TarefaDeTeste.id(id).adicionaPasso(execucoes::incrementAndGet).comTempoDeExecucao(1, TimeUnit.MILLISECONDS));
+		}
+
+		for (int execucao = 0; execucao < 2; execucao++){
+			PeriodicConsumer consumidor =
+					PeriodicConsumer.of()
+							   		.producer(tarefas::iterator)
+							   		.consumerService(Executors.newFixedThreadPool(2))
+							   		.timeInterval(20, TimeUnit.MILLISECONDS)
+							   		.completionJournal(arquivo, CHAVE)
+							   		.create()
+							   		.distributeTheTasks();
+			Thread.sleep(200);
+			consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+		}
+
+		Assert.assertEquals(5, execucoes.get());
+	}
+
+	@Test
+	public void naoEsqueceAsConcluidasAlemDaCapacidadeDoPrimeiroCiclo() throws InterruptedException{
+		Path arquivo = pasta.getRoot().toPath().resolve("concluidas.journal");
+		AtomicInteger execucoes = new AtomicInteger();
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 1; id <= 10; id++){
+			tarefas.add(TarefaDeTeste.id(id).adicionaPasso(execucoes::incrementAndGet).comTempoDeExecucao(30, TimeUnit.MILLISECONDS));
+		}
+		List<Runnable> concluidasAntes = tarefas.subList(5, 10);
+
+		for (List<Runnable> retornadas : Arrays.asList(concluidasAntes, tarefas)){
+			PeriodicConsumer consumidor =
+					PeriodicConsumer.of()
+							   		.producer(retornadas::iterator)
+							   		.consumerService(Executors.newFixedThreadPool(2))
+							   		.timeInterval(20, TimeUnit.MILLISECONDS)
+							   		.batchAmount(2)
+							   		.completionJournal(arquivo, CHAVE)
+							   		.create()
+							   		.distributeTheTasks();
+			Thread.sleep(600);
+			consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+		}
+
+		Assert.assertEquals(10, execucoes.get());
+	}
+}
@@ -0,0 +1,58 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrencyLimitTest {
+
+	private static final long RAPIDA = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long LENTA = TimeUnit.MILLISECONDS.toNanos(100);
+
+	@Test
+	public void aimdAumentaAosPoucosEReduzNosErros(){
+		AimdLimit limite = (AimdLimit) ConcurrencyLimit.aimd(2, 20, 50, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 1000; i++){
+			limite.sample(RAPIDA, false, limite.limit());
+		}
+		Assert.assertEquals(20, limite.limit());
+
+		limite.sample(RAPIDA, true, 20);
+		Assert.assertEquals(18, limite.limit());
+		limite.sample(LENTA, false, 20);
+		Assert.assertEquals(16, limite.limit());
+		for (int i = 0; i < 100; i++){
+			limite.sample(LENTA, false, 20);
+		}
+		Assert.assertEquals(2, limite.limit());
+	}
+
+	@Test
+	public void aimdNaoAumentaQuandoOLimiteNaoEstaEmUso(){
+		AimdLimit limite = (AimdLimit) ConcurrencyLimit.aimd(4, 20, 50, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 1000; i++){
+			limite.sample(RAPIDA, false, 1);
+		}
+		Assert.assertEquals(4, limite.limit());
+	}
+
+	@Test
+	public void gradienteAcompanhaALatencia(){
+		GradientLimit limite = (GradientLimit) ConcurrencyLimit.gradient(1, 50);
+		for (int i = 0; i < 5000; i++){
+			limite.sample(RAPIDA, false, limite.limit());
+		}
+		Assert.assertEquals(50, limite.limit());
+
+		for (int i = 0; i < 500; i++){
+			limite.sample(LENTA, false, limite.limit());
+		}
+		Assert.assertTrue("Limite nao reduzido: " + limite.limit(), limite.limit() < 25);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recusaMinimoMaiorQueOMaximo(){
+		ConcurrencyLimit.gradient(10, 1);
+	}
+}
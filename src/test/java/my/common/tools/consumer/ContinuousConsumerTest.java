@@ -0,0 +1,199 @@
+package my.common.tools.consumer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.producer.InfiniteTaskProducer;
+
+public class ContinuousConsumerTest {
+
+	private static final int TOTAL_DE_TAREFAS = 500;
+
+	@Test
+	public void consomeTodasAsTarefasUmaUnicaVez() throws InterruptedException{
+		Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+		CountDownLatch concluidas = new CountDownLatch(TOTAL_DE_TAREFAS);
+		AtomicInteger proximoId = new AtomicInteger();
+
+		InfiniteTaskProducer produtor = () -> () -> {
+			int id = proximoId.getAndIncrement();
+			return id < TOTAL_DE_TAREFAS ? new TarefaComId(id, execucoes, concluidas) : null;
+		};
+
+		ContinuousConsumer consumidor =
+				ContinuousConsumer.of()
+								  .producer(produtor)
+								  .consumerService(Executors.newFixedThreadPool(4))
+								  .watermarks(2, 8)
+								  .idleWait(10, TimeUnit.MILLISECONDS)
+								  .batchAmount(4)
+								  .create()
+								  .distributeTheTasks();
+
+		Assert.assertTrue("Nem todas as tarefas foram concluidas.", concluidas.await(10, TimeUnit.SECONDS));
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(TOTAL_DE_TAREFAS, execucoes.size());
+		execucoes.forEach((id, vezes) -> Assert.assertEquals("Tarefa executada mais de uma vez: " + id, 1, vezes.get()));
+	}
+
+	@Test
+	public void naoExecutaAMesmaTarefaEmParalelo() throws InterruptedException{
+		AtomicInteger emExecucao = new AtomicInteger();
+		AtomicInteger maximoEmExecucao = new AtomicInteger();
+		AtomicLong execucoes = new AtomicLong();
+
+		Runnable tarefaUnica = new Runnable() {
+			@Override
+			public void run() {
+				maximoEmExecucao.accumulateAndGet(emExecucao.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				emExecucao.decrementAndGet();
+				execucoes.incrementAndGet();
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				return obj != null && obj.getClass() == getClass();
+			}
+
+			@Override
+			public int hashCode() {
+				return 1;
+			}
+		};
+
+		ContinuousConsumer consumidor =
+				ContinuousConsumer.of()
+								  .producer(() -> () -> tarefaUnica)
+								  .consumerService(Executors.newFixedThreadPool(4))
+								  .watermarks(1, 4)
+								  .create()
+								  .distributeTheTasks();
+		Thread.sleep(300);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertTrue(execucoes.get() > 0);
+		Assert.assertEquals(1, maximoEmExecucao.get());
+	}
+
+	@Test
+	public void tarefaRejeitadaPelosConsumidoresLiberaSuaVaga() throws InterruptedException{
+		Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+		CountDownLatch concluidas = new CountDownLatch(9);
+		AtomicInteger proximoId = new AtomicInteger();
+		AtomicInteger rejeicoes = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		ContinuousConsumer consumidor =
+				ContinuousConsumer.of()
+								  .producer(() -> () -> {
+									  int id = proximoId.getAndIncrement();
+									  return id < 10 ? new TarefaComId(id, execucoes, concluidas) : null;
+								  })
+								  .consumerService(new ExecutorRejeitandoAPrimeira(executor, rejeicoes))
+								  .watermarks(1, 4)
+								  .idleWait(10, TimeUnit.MILLISECONDS)
+								  .batchAmount(1)
+								  .create()
+								  .distributeTheTasks();
+
+		Assert.assertTrue("A rejeicao interrompeu a distribuicao.", concluidas.await(5, TimeUnit.SECONDS));
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(1, rejeicoes.get());
+		Assert.assertFalse(execucoes.containsKey(0));
+	}
+
+	static final class ExecutorRejeitandoAPrimeira extends AbstractExecutorService{
+		private final ExecutorService executor;
+		private final AtomicInteger rejeicoes;
+
+		ExecutorRejeitandoAPrimeira(ExecutorService executor, AtomicInteger rejeicoes) {
+			this.executor = executor;
+			this.rejeicoes = rejeicoes;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			if (rejeicoes.compareAndSet(0, 1)){
+				throw new RejectedExecutionException("Primeira tarefa rejeitada.");
+			}
+			executor.execute(command);
+		}
+
+		@Override
+		public void shutdown() {
+			executor.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return executor.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return executor.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return executor.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return executor.awaitTermination(timeout, unit);
+		}
+	}
+
+	private static final class TarefaComId implements Runnable{
+		private final int id;
+		private final Map<Integer, AtomicInteger> execucoes;
+		private final CountDownLatch concluidas;
+
+		private TarefaComId(int id, Map<Integer, AtomicInteger> execucoes, CountDownLatch concluidas) {
+			this.id = id;
+			this.execucoes = execucoes;
+			this.concluidas = concluidas;
+		}
+
+		@Override
+		public void run() {
+			execucoes.computeIfAbsent(id, chave -> new AtomicInteger()).incrementAndGet();
+			concluidas.countDown();
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TarefaComId && ((TarefaComId) obj).id == id;
+		}
+
+		@Override
+		public String toString() {
+			return "TarefaComId [id=" + id + "]";
+		}
+	}
+}
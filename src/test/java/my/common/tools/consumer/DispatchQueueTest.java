@@ -0,0 +1,116 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DispatchQueueTest {
+
+	@Test
+	public void entregaPorPrioridadeEPrazoMantendoAOrdemDosEmpates(){
+		DispatchQueue fila = DispatchQueue.ordered(10, DispatchOrder.byPriority().thenComparing(DispatchOrder.earliestDeadlineFirst()));
+		Runnable semPrioridade = tarefa(0, Long.MAX_VALUE);
+		Runnable urgente = tarefa(5, 2000);
+		Runnable urgenteComPrazoMenor = tarefa(5, 1000);
+		Runnable outraSemPrioridade = tarefa(0, Long.MAX_VALUE);
+		Runnable comum = () -> {};
+		for (Runnable tarefa : Arrays.asList(semPrioridade, urgente, comum, urgenteComPrazoMenor, outraSemPrioridade)){
+			Assert.assertTrue(fila.offer(tarefa));
+		}
+
+		Assert.assertEquals(Arrays.asList(urgenteComPrazoMenor, urgente, semPrioridade, comum, outraSemPrioridade), esvazia(fila));
+	}
+
+	@Test
+	public void tarefaUrgenteTomaOLugarDaUltimaComAFilaCheia(){
+		DispatchQueue fila = DispatchQueue.ordered(2, DispatchOrder.byPriority());
+		Runnable baixa = tarefa(1, Long.MAX_VALUE);
+		Runnable outraBaixa = tarefa(1, Long.MAX_VALUE);
+		Runnable urgente = tarefa(9, Long.MAX_VALUE);
+		TaskBookkeeping contabilidade = new TaskBookkeeping(null, TaskLifecycleListener.NONE, () -> {});
+		Assert.assertEquals(2, fila.fill(Arrays.asList(baixa, outraBaixa).iterator(), contabilidade));
+		Assert.assertEquals(0, fila.remainingCapacity());
+		Assert.assertEquals(2, fila.demand());
+
+		Assert.assertFalse(fila.offer(tarefa(1, Long.MAX_VALUE)));
+		Assert.assertEquals(1, fila.fill(Arrays.asList(tarefa(0, Long.MAX_VALUE), urgente).iterator(), contabilidade));
+
+		Assert.assertFalse(fila.contains(outraBaixa));
+		Assert.assertEquals(Arrays.asList(urgente, baixa), esvazia(fila));
+	}
+
+	@Test
+	public void recusaTarefasRepetidasOuAlemDaCapacidade(){
+		DispatchQueue fila = DispatchQueue.fifo(2);
+		Runnable primeira = PeriodicConsumerTest.TarefaDeTeste.id(1);
+
+		Assert.assertTrue(fila.offer(primeira));
+		Assert.assertFalse(fila.offer(PeriodicConsumerTest.TarefaDeTeste.id(1)));
+		Assert.assertTrue(fila.offer(PeriodicConsumerTest.TarefaDeTeste.id(2)));
+		Assert.assertFalse(fila.offer(PeriodicConsumerTest.TarefaDeTeste.id(3)));
+		Assert.assertEquals(primeira, fila.poll().job());
+		Assert.assertFalse(fila.contains(primeira));
+		Assert.assertEquals(1, fila.remainingCapacity());
+	}
+
+	@Test
+	public void tarefaDesenfileiradaMantemQuandoFoiObtida() throws InterruptedException{
+		DispatchQueue fila = DispatchQueue.fifo(2);
+		long antes = System.nanoTime();
+		fila.offer(PeriodicConsumerTest.TarefaDeTeste.id(1));
+		Thread.sleep(20);
+
+		DispatchQueue.Entry entrada = fila.poll();
+		TaskWrapper tarefa = new TaskBookkeeping(null, TaskLifecycleListener.NONE, () -> {}).wrap(entrada.job(), entrada.obtainedAt());
+
+		Assert.assertTrue(entrada.obtainedAt() >= antes);
+		Assert.assertTrue(System.nanoTime() - tarefa.obtainedAt() >= TimeUnit.MILLISECONDS.toNanos(20));
+	}
+
+	@Test
+	public void devolveATarefaAdiadaMesmoComAFilaCheia(){
+		DispatchQueue fila = DispatchQueue.fifo(2);
+		fila.offer(PeriodicConsumerTest.TarefaDeTeste.id(1));
+		fila.offer(PeriodicConsumerTest.TarefaDeTeste.id(2));
+		DispatchQueue.Entry adiada = fila.poll();
+		Assert.assertTrue(fila.offer(PeriodicConsumerTest.TarefaDeTeste.id(3)));
+
+		fila.requeue(adiada);
+
+		Assert.assertTrue(fila.contains(adiada.job()));
+		Assert.assertEquals(0, fila.remainingCapacity());
+		Assert.assertEquals(Arrays.asList(PeriodicConsumerTest.TarefaDeTeste.id(2), PeriodicConsumerTest.TarefaDeTeste.id(3), adiada.job()), 
+							esvazia(fila));
+	}
+
+	private static List<Runnable> esvazia(DispatchQueue fila){
+		List<Runnable> tarefas = new ArrayList<>();
+		DispatchQueue.Entry entrada;
+		while ((entrada = fila.poll()) != null){
+			tarefas.add(entrada.job());
+		}
+		return tarefas;
+	}
+
+	private static Runnable tarefa(int prioridade, long prazo){
+		return new PrioritizedTask() {
+			@Override
+			public void run() {
+			}
+
+			@Override
+			public int priority() {
+				return prioridade;
+			}
+
+			@Override
+			public long deadline() {
+				return prazo;
+			}
+		};
+	}
+}
@@ -0,0 +1,92 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+
+public class ExecutionTimeoutTest {
+
+	@Test
+	public void interrompeATarefaTravadaELiberaOSlot() throws InterruptedException{
+		AtomicInteger interrupcoes = new AtomicInteger();
+		AtomicInteger expiradas = new AtomicInteger();
+		CountDownLatch concluidas = new CountDownLatch(5);
+		List<Runnable> tarefas = new ArrayList<>();
+		tarefas.add(() -> dorme(10_000, interrupcoes));
+		for (int id = 1; id <= 5; id++){
+			tarefas.add(TarefaDeTeste.id(id).adicionaPasso(concluidas::countDown).comTempoDeExecucao(1, TimeUnit.MILLISECONDS));
+		}
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(tarefas::iterator)
+						   		.consumerService(Executors.newFixedThreadPool(1))
+						   		.timeInterval(20, TimeUnit.MILLISECONDS)
+						   		.batchAmount(1)
+						   		.executionTimeout(50, TimeUnit.MILLISECONDS)
+						   		.retryPolicy(RetryPolicy.exponentialBackoff(10, 10, TimeUnit.SECONDS, 3))
+						   		.listener(new TaskLifecycleListener() {
+									@Override
+									public void taskTimedOut(TaskWrapper task) {
+										expiradas.incrementAndGet();
+									}
+								})
+						   		.create()
+						   		.distributeTheTasks();
+
+		Assert.assertTrue("O slot da tarefa travada nao foi liberado.", concluidas.await(5, TimeUnit.SECONDS));
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(1, interrupcoes.get());
+		Assert.assertEquals(1, expiradas.get());
+	}
+
+	@Test
+	public void respeitaOTempoLimiteDaPropriaTarefa() throws InterruptedException{
+		List<TaskWrapper> expiradas = Collections.synchronizedList(new ArrayList<>());
+		AtomicInteger interrupcoes = new AtomicInteger();
+		TaskWatchdog vigia = new TaskWatchdog(0, expiradas::add);
+		TaskWrapper comTempoLimite = TaskWrapper.create(new TimedTask() {
+			@Override
+			public void run() {
+				dorme(10_000, interrupcoes);
+			}
+
+			@Override
+			public long executionTimeoutMillis() {
+				return 30;
+			}
+		});
+		TaskWrapper semTempoLimite = TaskWrapper.create(() -> dorme(100, interrupcoes));
+		comTempoLimite.watchedBy(vigia);
+		semTempoLimite.watchedBy(vigia);
+
+		Thread primeira = new Thread(comTempoLimite);
+		Thread segunda = new Thread(semTempoLimite);
+		primeira.start();
+		segunda.start();
+		primeira.join(5_000);
+		segunda.join(5_000);
+		vigia.stop();
+
+		Assert.assertEquals(Collections.singletonList(comTempoLimite), expiradas);
+		Assert.assertEquals(1, interrupcoes.get());
+	}
+
+	private static void dorme(long millis, AtomicInteger interrupcoes){
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			interrupcoes.incrementAndGet();
+		}
+	}
+}
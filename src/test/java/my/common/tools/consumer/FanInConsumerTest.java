@@ -0,0 +1,106 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.consumer.ContinuousConsumerTest.ExecutorRejeitandoAPrimeira;
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+import my.common.tools.producer.TaskProducer;
+
+public class FanInConsumerTest {
+
+	@Test
+	public void divideACapacidadeConformeOsPesos() throws InterruptedException{
+		AtomicInteger execucoesDoPesado = new AtomicInteger();
+		AtomicInteger execucoesDoLeve = new AtomicInteger();
+
+		FanInConsumer consumidor =
+				FanInConsumer.of()
+							 .producer(produtorInfinito(execucoesDoPesado, new AtomicInteger(), new AtomicInteger()), 3)
+							 .producer(produtorInfinito(execucoesDoLeve, new AtomicInteger(), new AtomicInteger()), 1)
+							 .consumerService(Executors.newFixedThreadPool(4))
+							 .timeInterval(5, TimeUnit.MILLISECONDS)
+							 .batchAmount(4)
+							 .create()
+							 .distributeTheTasks();
+		Thread.sleep(1000);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		double proporcao = (double) execucoesDoPesado.get() / execucoesDoLeve.get();
+		Assert.assertTrue("Proporcao inesperada: " + proporcao, proporcao > 2 && proporcao < 4.5);
+	}
+
+	@Test
+	public void respeitaOLimiteDeTarefasDeCadaProdutor() throws InterruptedException{
+		AtomicInteger execucoesDoLimitado = new AtomicInteger();
+		AtomicInteger emExecucao = new AtomicInteger();
+		AtomicInteger maximoEmExecucao = new AtomicInteger();
+		AtomicInteger execucoesDoLivre = new AtomicInteger();
+
+		FanInConsumer consumidor =
+				FanInConsumer.of()
+							 .producer(produtorInfinito(execucoesDoLimitado, emExecucao, maximoEmExecucao), 10, 1)
+							 .producer(produtorInfinito(execucoesDoLivre, new AtomicInteger(), new AtomicInteger()), 1)
+							 .consumerService(Executors.newFixedThreadPool(4))
+							 .timeInterval(5, TimeUnit.MILLISECONDS)
+							 .batchAmount(4)
+							 .create()
+							 .distributeTheTasks();
+		Thread.sleep(500);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(1, maximoEmExecucao.get());
+		Assert.assertTrue("A capacidade livre nao foi usada pelo outro produtor.", execucoesDoLivre.get() > execucoesDoLimitado.get());
+	}
+
+	@Test
+	public void tarefaRejeitadaPelosConsumidoresEhEncaminhadaDeNovo() throws InterruptedException{
+		Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+		AtomicInteger rejeicoes = new AtomicInteger();
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < 5; id++){
+			int idDaTarefa = id;
+			tarefas.add(TarefaDeTeste.id(id)
+									 .adicionaPasso(() -> execucoes.computeIfAbsent(idDaTarefa, chave -> new AtomicInteger()).incrementAndGet())
+									 .comTempoDeExecucao(0, TimeUnit.MILLISECONDS));
+		}
+
+		FanInConsumer consumidor =
+				FanInConsumer.of()
+							 .producer(tarefas::iterator, 1)
+							 .consumerService(new ExecutorRejeitandoAPrimeira(Executors.newFixedThreadPool(2), rejeicoes))
+							 .timeInterval(10, TimeUnit.MILLISECONDS)
+							 .batchAmount(2)
+							 .create()
+							 .distributeTheTasks();
+		for (int espera = 0; espera < 100 && execucoes.size() < tarefas.size(); espera++){
+			Thread.sleep(20);
+		}
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(1, rejeicoes.get());
+		Assert.assertEquals("A tarefa rejeitada nao foi executada depois.", tarefas.size(), execucoes.size());
+	}
+
+	private static TaskProducer produtorInfinito(AtomicInteger execucoes, AtomicInteger emExecucao, AtomicInteger maximoEmExecucao){
+		return () -> Stream.<Runnable>generate(() -> () -> {
+			maximoEmExecucao.accumulateAndGet(emExecucao.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			emExecucao.decrementAndGet();
+			execucoes.incrementAndGet();
+		}).iterator();
+	}
+}
@@ -0,0 +1,94 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+import my.common.tools.producer.IncrementalTaskProducer;
+import my.common.tools.producer.TaskChanges;
+
+public class IncrementalProducerTest {
+
+	private static final int ID_DA_FALHA = 99;
+
+	private final List<Mudanca> historico = new CopyOnWriteArrayList<>();
+	private final Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+	private final AtomicInteger maiorDemanda = new AtomicInteger();
+
+	@Test
+	public void consomeApenasAsMudancasEAtendeAsRetratacoes() throws InterruptedException{
+		for (int id = 0; id < 10; id++){
+			historico.add(new Mudanca(tarefa(id), false));
+		}
+		historico.add(new Mudanca(tarefa(ID_DA_FALHA).adicionaPasso(() -> {
+			throw new IllegalStateException("Falha simulada");
+		}), false));
+
+		IncrementalTaskProducer produtor = (cursor, demanda) -> {
+			maiorDemanda.accumulateAndGet(demanda, Math::max);
+			List<Runnable> inseridas = new ArrayList<>();
+			List<Runnable> retiradas = new ArrayList<>();
+			int posicao = (int) cursor;
+			for (; posicao < historico.size() && inseridas.size() < demanda; posicao++){
+				Mudanca mudanca = historico.get(posicao);
+				(mudanca.retirada ? retiradas : inseridas).add(mudanca.tarefa);
+			}
+			return TaskChanges.of(posicao, inseridas, retiradas);
+		};
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(produtor, 0)
+						   		.consumerService(Executors.newFixedThreadPool(3))
+						   		.timeInterval(20, TimeUnit.MILLISECONDS)
+						   		.batchAmount(3)
+						   		.create()
+						   		.distributeTheTasks();
+		Thread.sleep(500);
+		Assert.assertTrue(execucoes(ID_DA_FALHA) > 1);
+
+		historico.add(new Mudanca(tarefa(0), false));
+		historico.add(new Mudanca(tarefa(ID_DA_FALHA), true));
+		Thread.sleep(200);
+		int falhasAposARetratacao = execucoes(ID_DA_FALHA);
+		Thread.sleep(300);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(2, execucoes(0));
+		for (int id = 1; id < 10; id++){
+			Assert.assertEquals("Tarefa " + id, 1, execucoes(id));
+		}
+		Assert.assertEquals(falhasAposARetratacao, execucoes(ID_DA_FALHA));
+		Assert.assertEquals(3, maiorDemanda.get());
+	}
+
+	private TarefaDeTeste tarefa(int id){
+		return TarefaDeTeste.id(id)
+							.adicionaPasso(() -> execucoes.computeIfAbsent(id, chave -> new AtomicInteger()).incrementAndGet())
+							.comTempoDeExecucao(1, TimeUnit.MILLISECONDS);
+	}
+
+	private int execucoes(int id){
+		AtomicInteger vezes = execucoes.get(id);
+		return vezes == null ? 0 : vezes.get();
+	}
+
+	private static final class Mudanca{
+		private final Runnable tarefa;
+		private final boolean retirada;
+
+		private Mudanca(Runnable tarefa, boolean retirada) {
+			this.tarefa = tarefa;
+			this.retirada = retirada;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeyAffinityExecutorTest {
+
+	private static final int CHAVES = 4;
+	private static final int TAREFAS_POR_CHAVE = 50;
+
+	@Test
+	public void executaEmSerieAsTarefasDaMesmaChaveEEmParaleloAsDemais() throws InterruptedException{
+		KeyAffinityExecutor executor = new KeyAffinityExecutor(Executors.newFixedThreadPool(8), KeyedTask::keyOf);
+		Map<Integer, AtomicInteger> emExecucaoPorChave = new ConcurrentHashMap<>();
+		Map<Integer, List<Integer>> ordemPorChave = new ConcurrentHashMap<>();
+		AtomicInteger emExecucao = new AtomicInteger();
+		AtomicInteger maximoEmExecucao = new AtomicInteger();
+		AtomicInteger maximoPorChave = new AtomicInteger();
+		CountDownLatch concluidas = new CountDownLatch(CHAVES * TAREFAS_POR_CHAVE);
+
+		for (int sequencia = 0; sequencia < TAREFAS_POR_CHAVE; sequencia++){
+			for (int chave = 0; chave < CHAVES; chave++){
+				final int chaveDaTarefa = chave;
+				final int sequenciaDaTarefa = sequencia;
+				executor.execute(new KeyedTask() {
+					@Override
+					public Object affinityKey() {
+						return chaveDaTarefa;
+					}
+
+					@Override
+					public void run() {
+						AtomicInteger daChave = emExecucaoPorChave.computeIfAbsent(chaveDaTarefa, chave -> new AtomicInteger());
+						maximoPorChave.accumulateAndGet(daChave.incrementAndGet(), Math::max);
+						maximoEmExecucao.accumulateAndGet(emExecucao.incrementAndGet(), Math::max);
+						ordemPorChave.computeIfAbsent(chaveDaTarefa, chave -> Collections.synchronizedList(new ArrayList<>()))
+									 .add(sequenciaDaTarefa);
+						try {
+							Thread.sleep(1);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						emExecucao.decrementAndGet();
+						daChave.decrementAndGet();
+						concluidas.countDown();
+					}
+				});
+			}
+		}
+
+		Assert.assertTrue(concluidas.await(10, TimeUnit.SECONDS));
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+		Assert.assertEquals(1, maximoPorChave.get());
+		Assert.assertTrue(maximoEmExecucao.get() > 1);
+		ordemPorChave.forEach((chave, ordem) -> {
+			for (int i = 0; i < ordem.size(); i++){
+				Assert.assertEquals(i, ordem.get(i).intValue());
+			}
+		});
+		Assert.assertEquals(0, executor.activeLanes());
+	}
+}
@@ -0,0 +1,46 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void calculaPercentisComErroRelativoPequeno(){
+		LatencyHistogram histograma = new LatencyHistogram();
+		for (long micros = 1; micros <= 10000; micros++){
+			histograma.record(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+		LatencyHistogram.Snapshot leitura = histograma.snapshot();
+
+		Assert.assertEquals(10000, leitura.count());
+		assertProximo(5000, leitura.percentile(50, TimeUnit.MICROSECONDS));
+		assertProximo(9900, leitura.percentile(99, TimeUnit.MICROSECONDS));
+		Assert.assertEquals(10000, leitura.max(TimeUnit.MICROSECONDS));
+		Assert.assertEquals(5000.5, leitura.mean(TimeUnit.MICROSECONDS), 0.01);
+	}
+
+	@Test
+	public void indicesSaoContinuosEOrdenados(){
+		for (long valor = 0; valor < 1 << 20; valor++){
+			int indice = LatencyHistogram.indexOf(valor);
+			Assert.assertTrue(valor <= LatencyHistogram.highestValueOf(indice));
+			Assert.assertTrue(indice == 0 || valor > LatencyHistogram.highestValueOf(indice - 1));
+		}
+		Assert.assertTrue(LatencyHistogram.indexOf(Long.MAX_VALUE) >= 0);
+	}
+
+	@Test
+	public void histogramaVazioRetornaZero(){
+		LatencyHistogram.Snapshot leitura = new LatencyHistogram().snapshot();
+
+		Assert.assertEquals(0, leitura.count());
+		Assert.assertEquals(0, leitura.percentile(99, TimeUnit.MILLISECONDS));
+	}
+
+	private static void assertProximo(long esperado, long atual){
+		Assert.assertEquals(esperado, atual, esperado * 0.016);
+	}
+}
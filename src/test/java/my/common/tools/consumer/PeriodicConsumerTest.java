@@ -5,8 +5,12 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -106,6 +110,81 @@ public class PeriodicConsumerTest {
 	
 	}
 	
+	@Test
+	public void informaAoProdutorADemandaEAsTarefasEmExecucao() throws InterruptedException{
+		List<Integer> demandasRecebidas = Collections.synchronizedList(new ArrayList<>());
+		List<Integer> emExecucaoRecebidas = Collections.synchronizedList(new ArrayList<>());
+		List<Runnable> tarefas = Arrays.asList(exibeMensagemSimples(1, 1, TimeUnit.SECONDS),
+											   exibeMensagemSimples(2, 1, TimeUnit.SECONDS),
+											   exibeMensagemSimples(3, 1, TimeUnit.SECONDS));
+		TaskProducer produtor = new TaskProducer() {
+			@Override
+			public Iterator<Runnable> nextTasks() {
+				throw new AssertionError("O consumidor deveria informar a demanda ao produtor.");
+			}
+			
+			@Override
+			public Iterator<Runnable> nextTasks(int demanda, Set<Runnable> emExecucao) {
+				demandasRecebidas.add(demanda);
+				emExecucaoRecebidas.add(emExecucao.size());
+				return tarefas.stream()
+							  .filter(tarefa -> !emExecucao.contains(tarefa))
+							  .limit(demanda)
+							  .iterator();
+			}
+		};
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(produtor)
+						   		.consumerService(Executors.newFixedThreadPool(2))
+						   		.timeInterval(100, TimeUnit.MILLISECONDS)
+						   		.batchAmount(2)
+						   		.create()
+						   		.distributeTheTasks();
+		Thread.sleep(300);
+		
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+		
+		Assert.assertEquals(Integer.valueOf(2), demandasRecebidas.get(0));
+		Assert.assertEquals(Integer.valueOf(0), emExecucaoRecebidas.get(0));
+		Assert.assertFalse("Produtor consultado sem capacidade livre.", demandasRecebidas.contains(0));
+	}
+	
+	@Test
+	public void prefetchNaoExecutaTarefasDuplicadas() throws InterruptedException{
+		Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 1; id <= 10; id++){
+			final int idDaTarefa = id;
+			tarefas.add(TarefaDeTeste.id(id)
+									 .adicionaPasso(() -> execucoes.computeIfAbsent(idDaTarefa, chave -> new AtomicInteger()).incrementAndGet())
+									 .comTempoDeExecucao(30, TimeUnit.MILLISECONDS));
+		}
+		TaskProducer produtorLento = () -> {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return tarefas.iterator();
+		};
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(produtorLento)
+						   		.consumerService(Executors.newFixedThreadPool(3))
+						   		.timeInterval(50, TimeUnit.MILLISECONDS)
+						   		.batchAmount(3)
+						   		.prefetch(4)
+						   		.create()
+						   		.distributeTheTasks();
+		Thread.sleep(1000);
+		
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+		
+		Assert.assertEquals(10, execucoes.size());
+		execucoes.forEach((id, vezes) -> Assert.assertEquals("Tarefa executada mais de uma vez: " + id, 1, vezes.get()));
+	}
+	
 	// M�todos e classes auxiliares  
 	private static final TarefaDeTeste exibeMensagemSimples(int id, long tempoDeExecucaoSimulado, TimeUnit unidadeDeTempo){
 		return TarefaDeTeste.id(id)
@@ -0,0 +1,71 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+
+public class RateLimitTest {
+
+	private static final long MILISSEGUNDO = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	public void liberaARajadaEDepoisATaxa(){
+		TokenBucket balde = new TokenBucket(10, 3, 0);
+		for (int i = 0; i < 3; i++){
+			Assert.assertEquals(0, balde.nanosUntilToken(0));
+			balde.take();
+		}
+		Assert.assertEquals(100 * MILISSEGUNDO, balde.nanosUntilToken(0));
+		Assert.assertEquals(40 * MILISSEGUNDO, balde.nanosUntilToken(60 * MILISSEGUNDO));
+		Assert.assertEquals(0, balde.nanosUntilToken(100 * MILISSEGUNDO));
+		Assert.assertFalse(balde.isFull(100 * MILISSEGUNDO));
+		Assert.assertTrue(balde.isFull(300 * MILISSEGUNDO));
+	}
+
+	@Test
+	public void encaminhaNaTaxaPermitidaSemDescartarTarefas() throws InterruptedException{
+		AtomicInteger execucoes = new AtomicInteger();
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < 40; id++){
+			tarefas.add(TarefaDeTeste.id(id).adicionaPasso(execucoes::incrementAndGet).comTempoDeExecucao(0, TimeUnit.MILLISECONDS));
+		}
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(tarefas::iterator)
+						   		.consumerService(Executors.newFixedThreadPool(4))
+						   		.timeInterval(500, TimeUnit.MILLISECONDS)
+						   		.rateLimit(RateLimit.perSecond(50, 5))
+						   		.create()
+						   		.distributeTheTasks();
+		Thread.sleep(400);
+		int noPrazo = execucoes.get();
+		Thread.sleep(700);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertTrue("Fora da taxa: " + noPrazo, noPrazo >= 15 && noPrazo <= 28);
+		Assert.assertEquals(40, execucoes.get());
+	}
+
+	@Test
+	public void esqueceOsBaldesDasChavesOciosas() throws InterruptedException{
+		RateGovernor governador = new RateGovernor(RateLimit.perKey(tarefa -> ((TarefaDeTeste) tarefa).getId() % 3, 1, 1));
+		for (int id = 0; id < 3; id++){
+			Assert.assertEquals(0, governador.tryAcquire(TarefaDeTeste.id(id)));
+		}
+		Assert.assertTrue(governador.tryAcquire(TarefaDeTeste.id(3)) > 0);
+		Assert.assertEquals(3, governador.keys());
+
+		Thread.sleep(1100);
+		governador.evictIdleKeys();
+
+		Assert.assertEquals(0, governador.keys());
+	}
+}
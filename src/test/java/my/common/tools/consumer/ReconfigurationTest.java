@@ -0,0 +1,111 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+
+public class ReconfigurationTest {
+
+	private static final int TOTAL_DE_TAREFAS = 200;
+
+	private final Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+	private final AtomicInteger emExecucao = new AtomicInteger();
+	private final AtomicInteger maximoEmExecucao = new AtomicInteger();
+
+	@Test
+	public void pausaAguardandoAsTarefasEmExecucaoESemPerderAMemoria() throws InterruptedException{
+		PeriodicConsumer consumidor = consumidor();
+		Thread.sleep(200);
+
+		Assert.assertTrue(consumidor.pausesWaitingAtTheMost(2, TimeUnit.SECONDS));
+		int executadasNaPausa = execucoes.size();
+		Thread.sleep(200);
+		Assert.assertEquals(executadasNaPausa, execucoes.size());
+		Assert.assertEquals(0, emExecucao.get());
+
+		consumidor.resume();
+		Thread.sleep(200);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertTrue(execucoes.size() > executadasNaPausa);
+		execucoes.forEach((id, vezes) -> Assert.assertEquals("Tarefa executada mais de uma vez: " + id, 1, vezes.get()));
+	}
+
+	@Test
+	public void pausaRespeitandoOTempoLimiteTotalComOCicloDemorado() throws InterruptedException{
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < TOTAL_DE_TAREFAS; id++){
+			tarefas.add(TarefaDeTeste.id(id).comTempoDeExecucao(1, TimeUnit.SECONDS));
+		}
+		PeriodicConsumer consumidor = PeriodicConsumer.of()
+													  .producer(() -> {
+														  sleep(300);
+														  return tarefas.iterator();
+													  })
+													  .consumerService(Executors.newFixedThreadPool(2))
+													  .timeInterval(10, TimeUnit.MILLISECONDS)
+													  .batchAmount(2)
+													  .create()
+													  .distributeTheTasks();
+		Thread.sleep(400);
+
+		long inicio = System.nanoTime();
+		Assert.assertFalse(consumidor.pausesWaitingAtTheMost(500, TimeUnit.MILLISECONDS));
+		long decorrido = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertTrue("Pausa demorou " + decorrido + "ms.", decorrido < 700);
+	}
+
+	@Test
+	public void aumentaOsConsumidoresEOLimiteEntreOsCiclos() throws InterruptedException{
+		PeriodicConsumer consumidor = consumidor();
+		Thread.sleep(200);
+		Assert.assertEquals(2, maximoEmExecucao.get());
+
+		consumidor.changeBatchAmount(4)
+				  .resizeConsumers(4)
+				  .changeTimeInterval(5, TimeUnit.MILLISECONDS);
+		Thread.sleep(200);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(4, maximoEmExecucao.get());
+	}
+
+	private PeriodicConsumer consumidor(){
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < TOTAL_DE_TAREFAS; id++){
+			int idDaTarefa = id;
+			tarefas.add(TarefaDeTeste.id(id)
+									 .adicionaPasso(() -> maximoEmExecucao.accumulateAndGet(emExecucao.incrementAndGet(), Math::max))
+									 .adicionaPasso(() -> sleep(20))
+									 .adicionaPasso(() -> execucoes.computeIfAbsent(idDaTarefa, chave -> new AtomicInteger()).incrementAndGet())
+									 .adicionaPasso(emExecucao::decrementAndGet)
+									 .comTempoDeExecucao(0, TimeUnit.MILLISECONDS));
+		}
+		return PeriodicConsumer.of()
+							   .producer(tarefas::iterator)
+							   .consumerService(Executors.newFixedThreadPool(2))
+							   .timeInterval(10, TimeUnit.MILLISECONDS)
+							   .batchAmount(2)
+							   .create()
+							   .distributeTheTasks();
+	}
+
+	private static void sleep(long millis){
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
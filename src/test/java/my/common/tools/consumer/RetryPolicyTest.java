@@ -0,0 +1,131 @@
+package my.common.tools.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import my.common.tools.consumer.ContinuousConsumerTest.ExecutorRejeitandoAPrimeira;
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+
+public class RetryPolicyTest {
+
+	@Test
+	public void dobraOIntervaloComVariacaoAteOMaximo(){
+		RetryPolicy politica = RetryPolicy.exponentialBackoff(100, 1000, TimeUnit.NANOSECONDS, 0);
+
+		for (int i = 0; i < 100; i++){
+			assertEntre(50, 100, politica.delayNanos(1));
+			assertEntre(200, 400, politica.delayNanos(3));
+			assertEntre(500, 1000, politica.delayNanos(30));
+		}
+		Assert.assertFalse(politica.exhausted(1000));
+	}
+
+	@Test
+	public void expiraAsFalhasDasTarefasNaoLembradasQueNaoVoltaram() throws InterruptedException{
+		RetryTracker tentativas = new RetryTracker(RetryPolicy.exponentialBackoff(0, 0, TimeUnit.MILLISECONDS, 2), 
+												   TimeUnit.MILLISECONDS.toNanos(20));
+		Runnable naoVoltou = TarefaDeTeste.id(1);
+		Runnable emQuarentena = TarefaDeTeste.id(2);
+		Assert.assertFalse(tentativas.failed(naoVoltou));
+		tentativas.failed(emQuarentena);
+		Assert.assertTrue(tentativas.failed(emQuarentena));
+
+		Thread.sleep(40);
+		tentativas.expire();
+
+		Assert.assertFalse("As falhas expiradas ainda contam.", tentativas.failed(naoVoltou));
+		Assert.assertEquals(TaskState.QUARANTINED, tentativas.blockingState(emQuarentena));
+	}
+
+	@Test
+	public void colocaEmQuarentenaATarefaQueFalhaDemais() throws InterruptedException{
+		AtomicInteger tentativas = new AtomicInteger();
+		Runnable tarefaComErro = PeriodicConsumerTest.TarefaDeTeste.id(1).adicionaPasso(() -> {
+			tentativas.incrementAndGet();
+			throw new IllegalStateException("Erro simulado");
+		}).comTempoDeExecucao(1, TimeUnit.MILLISECONDS);
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(() -> Collections.singleton(tarefaComErro).iterator())
+						   		.consumerService(Executors.newFixedThreadPool(2))
+						   		.timeInterval(5, TimeUnit.MILLISECONDS)
+						   		.retryPolicy(RetryPolicy.exponentialBackoff(20, 40, TimeUnit.MILLISECONDS, 3))
+						   		.create()
+						   		.distributeTheTasks();
+		Thread.sleep(500);
+		Assert.assertEquals(3, tentativas.get());
+		Assert.assertTrue(consumidor.quarantined().contains(tarefaComErro));
+
+		Assert.assertTrue(consumidor.releaseFromQuarantine(tarefaComErro));
+		Thread.sleep(100);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertTrue(tentativas.get() > 3);
+	}
+
+	@Test
+	public void colocaEmQuarentenaATarefaQueFalhaDepoisDoIntervalo() throws InterruptedException{
+		AtomicInteger tentativas = new AtomicInteger();
+		Runnable tarefaLentaComErro = PeriodicConsumerTest.TarefaDeTeste.id(1).adicionaPasso(() -> {
+			tentativas.incrementAndGet();
+			throw new IllegalStateException("Erro simulado");
+		}).comTempoDeExecucao(80, TimeUnit.MILLISECONDS);
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+						   		.producer(() -> Collections.singleton(tarefaLentaComErro).iterator())
+						   		.consumerService(Executors.newFixedThreadPool(2))
+						   		.timeInterval(20, TimeUnit.MILLISECONDS)
+						   		.retryPolicy(RetryPolicy.exponentialBackoff(1, 1, TimeUnit.MILLISECONDS, 3))
+						   		.create()
+						   		.distributeTheTasks();
+		Thread.sleep(1000);
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(3, tentativas.get());
+		Assert.assertTrue(consumidor.quarantined().contains(tarefaLentaComErro));
+	}
+
+	private static void assertEntre(long minimo, long maximo, long valor){
+		Assert.assertTrue(valor + " fora de [" + minimo + ", " + maximo + "]", valor >= minimo && valor <= maximo);
+	}
+
+	@Test
+	public void tarefaRejeitadaPelosConsumidoresEhEncaminhadaDeNovo() throws InterruptedException{
+		Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+		AtomicInteger rejeicoes = new AtomicInteger();
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int id = 0; id < 5; id++){
+			int idDaTarefa = id;
+			tarefas.add(TarefaDeTeste.id(id)
+									 .adicionaPasso(() -> execucoes.computeIfAbsent(idDaTarefa, chave -> new AtomicInteger()).incrementAndGet())
+									 .comTempoDeExecucao(0, TimeUnit.MILLISECONDS));
+		}
+
+		PeriodicConsumer consumidor =
+				PeriodicConsumer.of()
+								.producer(tarefas::iterator)
+								.consumerService(new ExecutorRejeitandoAPrimeira(Executors.newFixedThreadPool(2), rejeicoes))
+								.timeInterval(10, TimeUnit.MILLISECONDS)
+								.batchAmount(2)
+								.create()
+								.distributeTheTasks();
+		for (int espera = 0; espera < 100 && execucoes.size() < tarefas.size(); espera++){
+			Thread.sleep(20);
+		}
+		consumidor.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(1, rejeicoes.get());
+		Assert.assertEquals("A tarefa rejeitada nao foi executada depois.", tarefas.size(), execucoes.size());
+	}
+}
@@ -0,0 +1,201 @@
+package my.common.tools.consumer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import my.common.tools.consumer.PeriodicConsumerTest.TarefaDeTeste;
+
+public class ShardingTest {
+
+	private static final int TOTAL_DE_TAREFAS = 100;
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	private final Map<Integer, AtomicInteger> execucoes = new ConcurrentHashMap<>();
+
+	@Test
+	public void divideAsTarefasEntreOsNosSemDuplicar() throws InterruptedException{
+		ClaimStore armazem = ClaimStore.sharedDirectory(pasta.getRoot().toPath(), 5, TimeUnit.SECONDS);
+		armazem.heartbeat("a");
+		armazem.heartbeat("b");
+		AtomicInteger executadasPorA = new AtomicInteger();
+		AtomicInteger executadasPorB = new AtomicInteger();
+		PeriodicConsumer noA = no("a", armazem, executadasPorA);
+		PeriodicConsumer noB = no("b", armazem, executadasPorB);
+
+		for (int espera = 0; espera < 100 && execucoes.size() < TOTAL_DE_TAREFAS; espera++){
+			Thread.sleep(100);
+		}
+		noA.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+		noB.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertEquals(TOTAL_DE_TAREFAS, execucoes.size());
+		execucoes.forEach((id, vezes) -> Assert.assertEquals("Tarefa executada mais de uma vez: " + id, 1, vezes.get()));
+		Assert.assertTrue("Divisao desigual: " + executadasPorA + "/" + executadasPorB, 
+						  executadasPorA.get() > 20 && executadasPorB.get() > 20);
+	}
+
+	@Test
+	public void liberaAsReservasDoNoQueParou() throws InterruptedException{
+		ClaimStore armazem = ClaimStore.sharedDirectory(pasta.getRoot().toPath(), 200, TimeUnit.MILLISECONDS);
+		armazem.heartbeat("a");
+		armazem.heartbeat("b");
+		Assert.assertTrue(armazem.tryClaim("a", "expira"));
+		Assert.assertTrue(armazem.tryClaim("a", "sai"));
+		Assert.assertTrue(armazem.tryClaim("a", "expira"));
+		Assert.assertFalse(armazem.tryClaim("b", "expira"));
+
+		Thread.sleep(300);
+		armazem.heartbeat("b");
+		Assert.assertTrue(armazem.tryClaim("b", "expira"));
+
+		armazem.heartbeat("a");
+		Assert.assertFalse(armazem.tryClaim("b", "sai"));
+		armazem.leave("a");
+		Assert.assertTrue(armazem.tryClaim("b", "sai"));
+		armazem.release("b", "sai");
+		Assert.assertTrue(armazem.tryClaim("a", "sai"));
+	}
+
+	@Test
+	public void apagaAsReservasLiberadasEDosNosMortos() throws IOException{
+		ClaimStore armazem = ClaimStore.sharedDirectory(pasta.getRoot().toPath(), 5, TimeUnit.SECONDS);
+		armazem.heartbeat("a");
+		Assert.assertTrue(armazem.tryClaim("a", "mantida"));
+		Assert.assertTrue(armazem.tryClaim("morto", "do morto"));
+		for (int i = 0; i < 300; i++){
+			Assert.assertTrue(armazem.tryClaim("a", "tarefa-" + i));
+			armazem.release("a", "tarefa-" + i);
+		}
+
+		try (Stream<Path> reservas = Files.list(pasta.getRoot().toPath().resolve("claims"))) {
+			Assert.assertEquals(1 + 300 - 256, reservas.count());
+		}
+		Assert.assertFalse(armazem.tryClaim("b", "mantida"));
+		Assert.assertTrue(armazem.tryClaim("b", "tarefa-0"));
+	}
+
+	@Test
+	public void naoPerdeAReservaDaTarefaVarridaPorOutroProcessoAoReivindicar() throws IOException, InterruptedException, ExecutionException{
+		Path diretorio = pasta.getRoot().toPath();
+		ClaimStore armazem = ClaimStore.sharedDirectory(diretorio, 5, TimeUnit.SECONDS);
+		armazem.heartbeat("a");
+		armazem.heartbeat("b");
+		Assert.assertTrue(armazem.tryClaim("a", "vazia"));
+		armazem.release("a", "vazia");
+
+		Process varredura = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), 
+											   "-cp", System.getProperty("java.class.path"), 
+											   VarreduraDeOutroProcesso.class.getName(), diretorio.toString())
+											   .redirectError(ProcessBuilder.Redirect.INHERIT)
+											   .start();
+		try (BufferedReader saida = new BufferedReader(new InputStreamReader(varredura.getInputStream(), StandardCharsets.UTF_8))) {
+			Assert.assertEquals("travado", saida.readLine());
+			CompletableFuture<Boolean> reivindicou = CompletableFuture.supplyAsync(() -> armazem.tryClaim("a", "vazia"));
+			Thread.sleep(300);
+			varredura.getOutputStream().write('\n');
+			varredura.getOutputStream().flush();
+			Assert.assertTrue(varredura.waitFor(5, TimeUnit.SECONDS));
+
+			Assert.assertTrue(reivindicou.get());
+		}
+		Assert.assertFalse("Reserva escrita num arquivo apagado.", armazem.tryClaim("b", "vazia"));
+	}
+
+	/**
+	 * Varre as reservas vazias como outro no, travando o guarda ate receber uma linha.
+	 */
+	static final class VarreduraDeOutroProcesso {
+
+		public static void main(String[] args) throws IOException{
+			Path diretorio = Paths.get(args[0]);
+			try (FileChannel guarda = FileChannel.open(diretorio.resolve("claims.lock"), StandardOpenOption.CREATE, 
+													   StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				guarda.lock();
+				System.out.println("travado");
+				System.out.flush();
+				new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).readLine();
+				try (Stream<Path> reservas = Files.list(diretorio.resolve("claims"))) {
+					for (Path reserva : (Iterable<Path>) reservas::iterator){
+						if (Files.size(reserva) == 0){
+							Files.delete(reserva);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void renovaOArrendamentoEntreCiclosMaisLongosQueEle() throws InterruptedException{
+		ClaimStore armazem = ClaimStore.sharedDirectory(pasta.getRoot().toPath(), 300, TimeUnit.MILLISECONDS);
+		PeriodicConsumer noA = PeriodicConsumer.of()
+											   .producer(() -> new ArrayList<Runnable>().iterator())
+											   .consumerService(Executors.newFixedThreadPool(1))
+											   .timeInterval(5, TimeUnit.SECONDS)
+											   .batchAmount(1)
+											   .sharding("a", armazem, tarefa -> null)
+											   .create()
+											   .distributeTheTasks();
+
+		for (int espera = 0; espera < 10; espera++){
+			Thread.sleep(100);
+			Assert.assertTrue("No considerado morto entre os ciclos.", armazem.liveNodes().contains("a"));
+		}
+		noA.finishesWaitingAtTheMost(5, TimeUnit.SECONDS);
+
+		Assert.assertFalse(armazem.liveNodes().contains("a"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recusaAMemoriaCompactaQueNuncaLiberariaAsReservas(){
+		PeriodicConsumer.of()
+						.producer(() -> new ArrayList<Runnable>().iterator())
+						.consumerService(Executors.newFixedThreadPool(1))
+						.completedTaskMemory(CompletedTaskMemory.compact())
+						.sharding("a", ClaimStore.sharedDirectory(pasta.getRoot().toPath(), 5, TimeUnit.SECONDS), tarefa -> null)
+						.create();
+	}
+
+	private PeriodicConsumer no(String id, ClaimStore armazem, AtomicInteger executadas){
+		List<Runnable> tarefas = new ArrayList<>();
+		for (int idDaTarefa = 0; idDaTarefa < TOTAL_DE_TAREFAS; idDaTarefa++){
+			int chave = idDaTarefa;
+			tarefas.add(TarefaDeTeste.id(idDaTarefa)
+									 .adicionaPasso(() -> execucoes.computeIfAbsent(chave, c -> new AtomicInteger()).incrementAndGet())
+									 .adicionaPasso(executadas::incrementAndGet)
+									 .comTempoDeExecucao(5, TimeUnit.MILLISECONDS));
+		}
+		return PeriodicConsumer.of()
+							   .producer(tarefas::iterator)
+							   .consumerService(Executors.newFixedThreadPool(2))
+							   .timeInterval(20, TimeUnit.MILLISECONDS)
+							   .batchAmount(4)
+							   .sharding(id, armazem, tarefa -> "tarefa-" + ((TarefaDeTeste) tarefa).getId())
+							   .create()
+							   .distributeTheTasks();
+	}
+}
@@ -0,0 +1,138 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TaskRegistryTest {
+
+	private static final int THREADS = 8;
+
+	private final TaskRegistry registro = new TaskRegistry();
+
+	@Test
+	public void apenasUmaThreadEncaminhaDeNovoATarefaQueFalhou() throws InterruptedException{
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (int rodada = 0; rodada < 200; rodada++){
+				Runnable tarefa = tarefa(rodada);
+				Assert.assertTrue(registro.tryForward(tarefa));
+				registro.conclude(tarefa, TaskState.FAILED);
+
+				AtomicInteger encaminhadas = new AtomicInteger();
+				CountDownLatch largada = new CountDownLatch(1);
+				CountDownLatch chegada = new CountDownLatch(THREADS);
+				for (int i = 0; i < THREADS; i++){
+					executor.execute(() -> {
+						try {
+							largada.await();
+							if (registro.tryForward(tarefa)){
+								encaminhadas.incrementAndGet();
+							}
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						chegada.countDown();
+					});
+				}
+				largada.countDown();
+				Assert.assertTrue(chegada.await(5, TimeUnit.SECONDS));
+
+				Assert.assertEquals(1, encaminhadas.get());
+				Assert.assertEquals(TaskState.FORWARDED, registro.stateOf(tarefa));
+				registro.conclude(tarefa, TaskState.COMPLETED);
+			}
+			Assert.assertEquals(0, registro.forwarded());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void naoEncaminhaTarefaEncaminhadaOuConcluida(){
+		Runnable tarefa = tarefa(1);
+		Assert.assertTrue(registro.tryForward(tarefa));
+		Assert.assertFalse(registro.tryForward(tarefa));
+
+		registro.conclude(tarefa, TaskState.COMPLETED);
+		Assert.assertFalse(registro.tryForward(tarefa));
+		Assert.assertEquals(0, registro.forwarded());
+		Assert.assertEquals(1, registro.concluded());
+	}
+
+	@Test
+	public void conclusaoSemEstadoFinalEsqueceATarefa(){
+		Runnable tarefa = tarefa(1);
+		registro.tryForward(tarefa);
+
+		registro.conclude(tarefa, null);
+
+		Assert.assertNull(registro.stateOf(tarefa));
+		Assert.assertEquals(0, registro.forwarded());
+		Assert.assertEquals(0, registro.concluded());
+
+		registro.conclude(tarefa, null);
+		Assert.assertEquals(0, registro.forwarded());
+	}
+
+	@Test
+	public void esquecerMantemAsTarefasEncaminhadas(){
+		Runnable encaminhada = tarefa(1);
+		Runnable concluida = tarefa(2);
+		registro.tryForward(encaminhada);
+		registro.tryForward(concluida);
+		registro.conclude(concluida, TaskState.COMPLETED);
+
+		registro.forget(encaminhada);
+		registro.forget(concluida);
+
+		Assert.assertEquals(TaskState.FORWARDED, registro.stateOf(encaminhada));
+		Assert.assertNull(registro.stateOf(concluida));
+		Assert.assertTrue(registro.inFlight().contains(encaminhada));
+		Assert.assertEquals(1, registro.forwarded());
+	}
+
+	@Test
+	public void contadorDeEncaminhadasConsistenteComEncaminhamentosEConclusoesConcorrentes() throws InterruptedException{
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch chegada = new CountDownLatch(THREADS);
+		for (int thread = 0; thread < THREADS; thread++){
+			final int primeiroId = thread * 1000;
+			executor.execute(() -> {
+				for (int id = primeiroId; id < primeiroId + 1000; id++){
+					Runnable tarefa = tarefa(id % 1500);
+					if (registro.tryForward(tarefa)){
+						registro.conclude(tarefa, id % 2 == 0 ? TaskState.FAILED : null);
+					}
+				}
+				chegada.countDown();
+			});
+		}
+		Assert.assertTrue(chegada.await(10, TimeUnit.SECONDS));
+		executor.shutdown();
+
+		Assert.assertEquals(0, registro.forwarded());
+		Assert.assertEquals(0, registro.inFlight().size());
+		Assert.assertFalse(registro.inFlight().iterator().hasNext());
+	}
+
+	@Test
+	public void contabilidadeNaoEncaminhaDuasVezesAMesmaTarefa(){
+		TaskBookkeeping contabilidade = new TaskBookkeeping(null, TaskLifecycleListener.NONE, () -> {});
+		Runnable tarefa = tarefa(1);
+
+		Assert.assertTrue(contabilidade.recordsForwardedTask(contabilidade.wrap(tarefa)));
+		Assert.assertFalse(contabilidade.recordsForwardedTask(contabilidade.wrap(tarefa)));
+
+		Assert.assertEquals(1, contabilidade.inFlight());
+	}
+
+	private static Runnable tarefa(int id){
+		return PeriodicConsumerTest.TarefaDeTeste.id(id);
+	}
+}
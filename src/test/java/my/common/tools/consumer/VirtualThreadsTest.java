@@ -0,0 +1,42 @@
+package my.common.tools.consumer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+	@Test
+	public void limitaAsTarefasExecutandoAoMesmoTempo() throws InterruptedException{
+		ExecutorService executor = VirtualThreads.executor(3);
+		AtomicInteger executando = new AtomicInteger();
+		AtomicInteger maximoExecutando = new AtomicInteger();
+		CountDownLatch concluidas = new CountDownLatch(50);
+
+		for (int i = 0; i < 50; i++){
+			executor.execute(() -> {
+				maximoExecutando.accumulateAndGet(executando.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				executando.decrementAndGet();
+				concluidas.countDown();
+			});
+		}
+
+		Assert.assertTrue(concluidas.await(10, TimeUnit.SECONDS));
+		executor.shutdown();
+		Assert.assertTrue(maximoExecutando.get() <= 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recusaLimiteInvalido(){
+		VirtualThreads.executor(0);
+	}
+}